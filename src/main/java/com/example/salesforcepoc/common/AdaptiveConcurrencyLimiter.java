@@ -0,0 +1,164 @@
+package com.example.salesforcepoc.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latency-driven concurrency limit with a bounded wait queue.
+ * <p>
+ * The limit follows a gradient: a slow-moving average of request latency approximates the no-load
+ * latency, and whenever recent latency rises above it (times a tolerance) the limit shrinks in
+ * proportion; while latency stays flat and the limit is actually being used it grows by roughly
+ * sqrt(limit). Requests over the limit wait briefly in a bounded queue and are rejected otherwise.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    // Latency may rise this far above the long-term average before the limit backs off
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_WINDOW_WEIGHT = 1.0 / 200;
+    private static final double SHORT_WINDOW_WEIGHT = 1.0 / 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueued;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double longLatencyNanos;
+    private double shortLatencyNanos;
+    private long admitted;
+    private long rejected;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueued) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Take a permit, waiting up to maxWaitMillis in the queue. Returns false if the queue is full or the wait timed out.
+     */
+    public boolean tryAcquire(long maxWaitMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                admitted++;
+                return true;
+            }
+            if (queued >= maxQueued || maxWaitMillis <= 0) {
+                rejected++;
+                return false;
+            }
+
+            queued++;
+            try {
+                long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (inFlight >= (int) limit) {
+                    if (remainingNanos <= 0) {
+                        rejected++;
+                        return false;
+                    }
+                    remainingNanos = permitAvailable.awaitNanos(remainingNanos);
+                }
+                inFlight++;
+                admitted++;
+                return true;
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return a permit. Latency of successful requests feeds the limit; failed requests only free the slot.
+     */
+    public void release(long latencyNanos, boolean success) {
+        lock.lock();
+        try {
+            int inFlightBefore = inFlight;
+            inFlight = Math.max(0, inFlight - 1);
+            if (success && latencyNanos > 0) {
+                updateLimit(latencyNanos, inFlightBefore);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateLimit(long latencyNanos, int inFlightBefore) {
+        if (longLatencyNanos == 0) {
+            longLatencyNanos = latencyNanos;
+            shortLatencyNanos = latencyNanos;
+            return;
+        }
+        shortLatencyNanos += (latencyNanos - shortLatencyNanos) * SHORT_WINDOW_WEIGHT;
+        longLatencyNanos += (latencyNanos - longLatencyNanos) * LONG_WINDOW_WEIGHT;
+
+        // After a sustained shift the long-term average lags far behind; pull it along so it can recover
+        if (longLatencyNanos > shortLatencyNanos * 2) {
+            longLatencyNanos = shortLatencyNanos * 2;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatencyNanos / shortLatencyNanos));
+
+        // Don't grow a limit the traffic isn't using, otherwise it drifts to the max during quiet periods
+        if (gradient >= 1.0 && inFlightBefore < limit / 2) {
+            return;
+        }
+
+        double target = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.min(maxLimit, Math.max(minLimit, next));
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        lock.lock();
+        try {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("limit", (int) limit);
+            snapshot.put("minLimit", minLimit);
+            snapshot.put("maxLimit", maxLimit);
+            snapshot.put("inFlight", inFlight);
+            snapshot.put("queued", queued);
+            snapshot.put("maxQueued", maxQueued);
+            snapshot.put("admitted", admitted);
+            snapshot.put("rejected", rejected);
+            snapshot.put("latencyMs", Math.round(shortLatencyNanos / 10_000.0) / 100.0);
+            snapshot.put("baselineLatencyMs", Math.round(longLatencyNanos / 10_000.0) / 100.0);
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
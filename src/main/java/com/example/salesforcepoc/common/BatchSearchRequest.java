@@ -0,0 +1,44 @@
+package com.example.salesforcepoc.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of POST /api/productBySupplier/batch: the searches to run, plus an optional time
+ * budget and field projection shared by all of them
+ */
+public class BatchSearchRequest {
+
+    private List<SupplierSearchRequest> queries = new ArrayList<>();
+    private Long timeoutMs;
+    private String fields;
+
+    // Default constructor
+    public BatchSearchRequest() {}
+
+    // Getters and Setters
+    public List<SupplierSearchRequest> getQueries() {
+        return queries;
+    }
+
+    public void setQueries(List<SupplierSearchRequest> queries) {
+        this.queries = queries;
+    }
+
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(Long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    // Comma-separated product fields to return, as for the single-query endpoint
+    public String getFields() {
+        return fields;
+    }
+
+    public void setFields(String fields) {
+        this.fields = fields;
+    }
+}
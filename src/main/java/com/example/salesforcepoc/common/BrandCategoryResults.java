@@ -1,6 +1,9 @@
 package com.example.salesforcepoc.common;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.example.salesforcepoc.entity.Product;
 
@@ -8,8 +11,10 @@ public class BrandCategoryResults {
     
     private List<Product> products;
     private int totalCount;
+    private boolean totalCountLowerBound;
     private List<String> brands;
     private List<String> categories;
+    private boolean partial;
     
     // Default constructor
     public BrandCategoryResults() {}
@@ -22,6 +27,44 @@ public class BrandCategoryResults {
         this.categories = categories;
     }
     
+    /**
+     * Products plus the unique brands and categories among them
+     */
+    public static BrandCategoryResults fromProducts(List<Product> products, int totalCount) {
+        // Extract unique brands (both smkts and liq brands)
+        Set<String> uniqueBrands = new LinkedHashSet<>();
+        Set<String> uniqueCategories = new LinkedHashSet<>();
+        
+        for (Product product : products) {
+            // Add digital brand name
+            if (product.getDigitalBrandName() != null && !product.getDigitalBrandName().trim().isEmpty()) {
+                uniqueBrands.add(product.getDigitalBrandName().trim());
+            }
+            
+            // Add sub brand name
+            if (product.getSubBrandName() != null && !product.getSubBrandName().trim().isEmpty()) {
+                uniqueBrands.add(product.getSubBrandName().trim());
+            }
+            
+            // Add smkts merch category
+            if (product.getSmktsMerchCategory() != null && !product.getSmktsMerchCategory().trim().isEmpty()) {
+                uniqueCategories.add(product.getSmktsMerchCategory().trim());
+            }
+            
+            // Add liq merch category
+            if (product.getLiqMerchCategory() != null && !product.getLiqMerchCategory().trim().isEmpty()) {
+                uniqueCategories.add(product.getLiqMerchCategory().trim());
+            }
+        }
+        
+        return new BrandCategoryResults(
+            products, 
+            totalCount,
+            new ArrayList<>(uniqueBrands),
+            new ArrayList<>(uniqueCategories)
+        );
+    }
+    
     // Getters and Setters
     public List<Product> getProducts() {
         return products;
@@ -39,6 +82,15 @@ public class BrandCategoryResults {
         this.totalCount = totalCount;
     }
     
+    // True when there are at least totalCount matches: counting stops at search.total-hits-threshold
+    public boolean isTotalCountLowerBound() {
+        return totalCountLowerBound;
+    }
+    
+    public void setTotalCountLowerBound(boolean totalCountLowerBound) {
+        this.totalCountLowerBound = totalCountLowerBound;
+    }
+    
     public List<String> getBrands() {
         return brands;
     }
@@ -54,4 +106,13 @@ public class BrandCategoryResults {
     public void setCategories(List<String> categories) {
         this.categories = categories;
     }
+    
+    // True when the time budget expired and products/totalCount cover only part of the matches
+    public boolean isPartial() {
+        return partial;
+    }
+    
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
 }
@@ -0,0 +1,263 @@
+package com.example.salesforcepoc.common;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimates the bytes each field takes on disk by reading the latest commit through a directory that counts
+ * the bytes read, one field at a time: its terms and postings, doc values and norms. Stored fields are
+ * compressed a block of documents at a time, so they are reported as one total. Reads the whole index,
+ * so it is meant for occasional diagnostics rather than monitoring.
+ */
+public final class FieldDiskUsage {
+
+    private FieldDiskUsage() {
+    }
+
+    public static Map<String, Object> analyze(Directory directory) throws IOException {
+        long start = System.currentTimeMillis();
+        LongAdder bytesRead = new LongAdder();
+        Map<String, long[]> usageByField = new TreeMap<>();
+        long storedFieldBytes = 0;
+
+        try (DirectoryReader reader = DirectoryReader.open(new CountingDirectory(directory, bytesRead))) {
+            for (LeafReaderContext context : reader.leaves()) {
+                LeafReader leaf = context.reader();
+                for (FieldInfo field : leaf.getFieldInfos()) {
+                    long[] usage = usageByField.computeIfAbsent(field.name, name -> new long[3]);
+                    long before = bytesRead.sum();
+                    readPostings(leaf, field);
+                    long afterPostings = bytesRead.sum();
+                    readDocValues(leaf, field);
+                    long afterDocValues = bytesRead.sum();
+                    readNorms(leaf, field);
+                    usage[0] += afterPostings - before;
+                    usage[1] += afterDocValues - afterPostings;
+                    usage[2] += bytesRead.sum() - afterDocValues;
+                }
+                long before = bytesRead.sum();
+                readStoredFields(leaf);
+                storedFieldBytes += bytesRead.sum() - before;
+            }
+        }
+
+        // Largest fields first
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(usageByField.entrySet());
+        entries.sort((a, b) -> Long.compare(total(b.getValue()), total(a.getValue())));
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : entries) {
+            long[] usage = entry.getValue();
+            Map<String, Long> field = new LinkedHashMap<>();
+            field.put("totalBytes", total(usage));
+            field.put("termsAndPostingsBytes", usage[0]);
+            field.put("docValuesBytes", usage[1]);
+            field.put("normsBytes", usage[2]);
+            fields.put(entry.getKey(), field);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fields", fields);
+        result.put("storedFieldsBytes", storedFieldBytes);
+        result.put("analysisMs", System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private static long total(long[] usage) {
+        return usage[0] + usage[1] + usage[2];
+    }
+
+    private static void readPostings(LeafReader leaf, FieldInfo field) throws IOException {
+        if (field.getIndexOptions() == IndexOptions.NONE) {
+            return;
+        }
+        Terms terms = leaf.terms(field.name);
+        if (terms == null) {
+            return;
+        }
+        boolean positions = field.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
+        TermsEnum termsEnum = terms.iterator();
+        PostingsEnum postings = null;
+        while (termsEnum.next() != null) {
+            postings = termsEnum.postings(postings, positions ? PostingsEnum.ALL : PostingsEnum.FREQS);
+            while (postings.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                if (positions) {
+                    for (int i = 0; i < postings.freq(); i++) {
+                        postings.nextPosition();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void readDocValues(LeafReader leaf, FieldInfo field) throws IOException {
+        switch (field.getDocValuesType()) {
+            case NUMERIC: {
+                NumericDocValues values = leaf.getNumericDocValues(field.name);
+                while (values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    values.longValue();
+                }
+                break;
+            }
+            case BINARY: {
+                BinaryDocValues values = leaf.getBinaryDocValues(field.name);
+                while (values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    values.binaryValue();
+                }
+                break;
+            }
+            case SORTED: {
+                SortedDocValues values = leaf.getSortedDocValues(field.name);
+                while (values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    values.ordValue();
+                }
+                for (int ord = 0; ord < values.getValueCount(); ord++) {
+                    values.lookupOrd(ord);
+                }
+                break;
+            }
+            case SORTED_SET: {
+                SortedSetDocValues values = leaf.getSortedSetDocValues(field.name);
+                while (values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    for (int i = 0; i < values.docValueCount(); i++) {
+                        values.nextOrd();
+                    }
+                }
+                for (long ord = 0; ord < values.getValueCount(); ord++) {
+                    values.lookupOrd(ord);
+                }
+                break;
+            }
+            case SORTED_NUMERIC: {
+                SortedNumericDocValues values = leaf.getSortedNumericDocValues(field.name);
+                while (values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    for (int i = 0; i < values.docValueCount(); i++) {
+                        values.nextValue();
+                    }
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private static void readNorms(LeafReader leaf, FieldInfo field) throws IOException {
+        if (!field.hasNorms()) {
+            return;
+        }
+        NumericDocValues norms = leaf.getNormValues(field.name);
+        if (norms == null) {
+            return;
+        }
+        while (norms.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+            norms.longValue();
+        }
+    }
+
+    private static void readStoredFields(LeafReader leaf) throws IOException {
+        StoredFields storedFields = leaf.storedFields();
+        StoredFieldVisitor readEverything = new StoredFieldVisitor() {
+            @Override
+            public Status needsField(FieldInfo fieldInfo) {
+                return Status.YES;
+            }
+        };
+        for (int doc = 0; doc < leaf.maxDoc(); doc++) {
+            storedFields.document(doc, readEverything);
+        }
+    }
+
+    private static final class CountingDirectory extends FilterDirectory {
+        private final LongAdder bytesRead;
+
+        CountingDirectory(Directory directory, LongAdder bytesRead) {
+            super(directory);
+            this.bytesRead = bytesRead;
+        }
+
+        @Override
+        public IndexInput openInput(String name, IOContext context) throws IOException {
+            return new CountingIndexInput(name, in.openInput(name, context), bytesRead);
+        }
+    }
+
+    // Counts every byte read, including through clones and slices (compound files, random access doc values)
+    private static final class CountingIndexInput extends IndexInput {
+        private final IndexInput in;
+        private final LongAdder bytesRead;
+
+        CountingIndexInput(String description, IndexInput in, LongAdder bytesRead) {
+            super(description);
+            this.in = in;
+            this.bytesRead = bytesRead;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            bytesRead.increment();
+            return in.readByte();
+        }
+
+        @Override
+        public void readBytes(byte[] bytes, int offset, int length) throws IOException {
+            bytesRead.add(length);
+            in.readBytes(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public long getFilePointer() {
+            return in.getFilePointer();
+        }
+
+        @Override
+        public void seek(long position) throws IOException {
+            in.seek(position);
+        }
+
+        @Override
+        public long length() {
+            return in.length();
+        }
+
+        @Override
+        public IndexInput clone() {
+            return new CountingIndexInput(toString(), in.clone(), bytesRead);
+        }
+
+        @Override
+        public IndexInput slice(String description, long offset, long length) throws IOException {
+            return new CountingIndexInput(description, in.slice(description, offset, length), bytesRead);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.salesforcepoc.common;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Product fields requested with {@code fields=}. Applied when the response is serialized (JSON, Smile or
+ * CBOR), and when every requested field is also stored in the Lucene index the products are built from
+ * stored fields alone, skipping database hydration.
+ */
+public final class FieldProjection {
+
+    public static final String FILTER_ID = "productFields";
+
+    public static final List<String> PRODUCT_FIELDS = List.of("productId", "supplierGroupId", "supplier",
+            "isPrimarySupplier", "itemDescription", "smktsMerchCategory", "liqMerchCategory", "digitalBrandName",
+            "subBrandName");
+
+    // Every product field is stored in the index, as a stored field of the same name or in the product record
+    public static final Set<String> INDEX_STORED_FIELDS = Set.copyOf(PRODUCT_FIELDS);
+
+    private static final FieldProjection ALL = new FieldProjection(null);
+
+    // Null means every field
+    private final Set<String> fields;
+
+    private FieldProjection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldProjection all() {
+        return ALL;
+    }
+
+    /**
+     * Parse a comma-separated field list; null or blank selects every field
+     *
+     * @throws IllegalArgumentException for a name that is not a product field
+     */
+    public static FieldProjection parse(String fieldList) {
+        if (fieldList == null || fieldList.trim().isEmpty()) {
+            return ALL;
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        for (String field : fieldList.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!PRODUCT_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown field '" + name + "', expected one of " + PRODUCT_FIELDS);
+            }
+            fields.add(name);
+        }
+        return fields.isEmpty() ? ALL : new FieldProjection(Collections.unmodifiableSet(fields));
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public Set<String> getFields() {
+        return fields != null ? fields : new LinkedHashSet<>(PRODUCT_FIELDS);
+    }
+
+    /**
+     * True when the index alone can produce the requested fields
+     */
+    public boolean isIndexOnly() {
+        return fields != null && INDEX_STORED_FIELDS.containsAll(fields);
+    }
+
+    /**
+     * Stored fields to read from the index: the requested ones, the product ID and any the caller needs
+     * itself (e.g. for aggregation). Null when the projection cannot be served from the index.
+     */
+    public Set<String> storedFieldsToLoad(String... extraFields) {
+        if (!isIndexOnly()) {
+            return null;
+        }
+        Set<String> load = new LinkedHashSet<>(fields);
+        load.add("productId");
+        Collections.addAll(load, extraFields);
+        return load;
+    }
+
+    public SimpleFilterProvider filterProvider() {
+        SimpleBeanPropertyFilter filter = fields == null
+                ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(fields);
+        return new SimpleFilterProvider().addFilter(FILTER_ID, filter);
+    }
+
+    /**
+     * Wrap a response body so its products are serialized with this projection
+     */
+    public MappingJacksonValue apply(Object body) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(filterProvider());
+        return value;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.salesforcepoc.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the startup import, updated by the import thread and read by status and health checks.
+ * The ETA covers the current phase only, extrapolated from its progress so far.
+ */
+public final class ImportProgress {
+
+    public enum Phase {
+        // Waiting to start
+        PENDING,
+        // Reading the CSV and writing products to the database
+        IMPORTING,
+        // Building the Lucene index
+        INDEXING,
+        // Building the database full-text index
+        FULL_TEXT_INDEXING,
+        // Index consistent with the database; search traffic admitted
+        READY,
+        FAILED
+    }
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong docsIndexed = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile long totalBytes = -1;
+    private volatile long docsToIndex = -1;
+    private volatile Phase phase = Phase.PENDING;
+    private volatile String error;
+    private volatile long startedAtMillis;
+    private volatile long phaseStartedAtMillis;
+    private volatile long finishedAtMillis;
+
+    public void start(long csvBytes) {
+        totalBytes = csvBytes;
+        startedAtMillis = System.currentTimeMillis();
+        enter(Phase.IMPORTING);
+    }
+
+    public void enter(Phase next) {
+        phaseStartedAtMillis = System.currentTimeMillis();
+        phase = next;
+        if (next == Phase.READY || next == Phase.FAILED) {
+            finishedAtMillis = phaseStartedAtMillis;
+        }
+    }
+
+    public void fail(String message) {
+        error = message;
+        enter(Phase.FAILED);
+    }
+
+    public void rowParsed(long lineBytes) {
+        rowsParsed.incrementAndGet();
+        bytesRead.addAndGet(lineBytes);
+    }
+
+    public void rowsWritten(long rows) {
+        rowsWritten.addAndGet(rows);
+    }
+
+    public void startIndexing(long documents) {
+        docsToIndex = documents;
+        docsIndexed.set(0);
+        enter(Phase.INDEXING);
+    }
+
+    public void docsIndexed(long documents) {
+        docsIndexed.set(documents);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    public Map<String, Object> snapshot() {
+        long now = System.currentTimeMillis();
+        Phase current = phase;
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("phase", current.name());
+        snapshot.put("rowsParsed", rowsParsed.get());
+        snapshot.put("rowsWritten", rowsWritten.get());
+        snapshot.put("docsIndexed", docsIndexed.get());
+        if (docsToIndex >= 0) {
+            snapshot.put("docsToIndex", docsToIndex);
+        }
+        if (current == Phase.IMPORTING && totalBytes > 0) {
+            snapshot.put("percent", percent(bytesRead.get(), totalBytes));
+            snapshot.put("phaseEtaSeconds", eta(bytesRead.get(), totalBytes, now));
+        } else if (current == Phase.INDEXING && docsToIndex > 0) {
+            snapshot.put("percent", percent(docsIndexed.get(), docsToIndex));
+            snapshot.put("phaseEtaSeconds", eta(docsIndexed.get(), docsToIndex, now));
+        }
+        if (startedAtMillis > 0) {
+            long end = finishedAtMillis > 0 ? finishedAtMillis : now;
+            snapshot.put("elapsedSeconds", (end - startedAtMillis) / 1000);
+        }
+        if (error != null) {
+            snapshot.put("error", error);
+        }
+        return snapshot;
+    }
+
+    private static double percent(long done, long total) {
+        return Math.round(Math.min(1.0, (double) done / total) * 1000) / 10.0;
+    }
+
+    // Null until there is progress to extrapolate from
+    private Long eta(long done, long total, long now) {
+        if (done <= 0) {
+            return null;
+        }
+        long elapsed = now - phaseStartedAtMillis;
+        return Math.max(0, Math.round(elapsed * (double) (total - done) / done / 1000));
+    }
+}
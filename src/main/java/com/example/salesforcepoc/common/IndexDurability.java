@@ -0,0 +1,33 @@
+package com.example.salesforcepoc.common;
+
+import java.util.Locale;
+
+/**
+ * When index writes are committed (fsynced), chosen with {@code search.index.durability.mode}. Searchers see
+ * changes through near-real-time refreshes whatever the mode, so it trades write throughput against how
+ * much work a crash can lose:
+ * <ul>
+ *   <li>{@code on-completion} - one commit when a write finishes: the end of a rebuild, or of an update
+ *   request. A crash mid-rebuild leaves the previous index, and startup replays the source into it.</li>
+ *   <li>{@code batch} - a commit after every batch of documents, so a crash loses at most one batch; the
+ *   commits of an unfinished rebuild are marked, and startup replays the source over them.</li>
+ *   <li>{@code group} - a background committer commits whatever changes are pending at an interval, or
+ *   sooner once enough documents are pending, so many small writes share one fsync. Updates return before
+ *   they are durable; the commit before the first of them marks the index, so a crash is replayed.</li>
+ * </ul>
+ */
+public enum IndexDurability {
+    ON_COMPLETION, BATCH, GROUP;
+
+    public static IndexDurability parse(String mode) {
+        try {
+            return valueOf(mode.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown index durability '" + mode + "', expected on-completion, batch or group");
+        }
+    }
+
+    public String label() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
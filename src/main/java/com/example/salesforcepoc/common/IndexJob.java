@@ -0,0 +1,112 @@
+package com.example.salesforcepoc.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * One index rebuild or force-merge submitted to the job queue. Status and progress are written by the job
+ * thread and read by the status endpoints.
+ */
+public final class IndexJob {
+
+    public enum Type { REBUILD, FORCE_MERGE }
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    private final String id;
+    private final Type type;
+    // "api" or "schedule"
+    private final String trigger;
+    private final long submittedAtMillis = System.currentTimeMillis();
+    private volatile Status status = Status.QUEUED;
+    private volatile long startedAtMillis;
+    private volatile long finishedAtMillis;
+    private volatile long processed;
+    private volatile long total = -1;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+    private volatile Future<?> future;
+
+    public IndexJob(String id, Type type, String trigger) {
+        this.id = id;
+        this.type = type;
+        this.trigger = trigger;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+
+    public Future<?> getFuture() {
+        return future;
+    }
+
+    public void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    public void started(long totalItems) {
+        total = totalItems;
+        startedAtMillis = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    public void progress(long processedItems) {
+        processed = processedItems;
+    }
+
+    public void finished(Status finalStatus, String message) {
+        error = message;
+        finishedAtMillis = System.currentTimeMillis();
+        status = finalStatus;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("id", id);
+        snapshot.put("type", type.name());
+        snapshot.put("trigger", trigger);
+        snapshot.put("status", status.name());
+        snapshot.put("submittedAt", submittedAtMillis);
+        if (total > 0) {
+            snapshot.put("processed", processed);
+            snapshot.put("total", total);
+            snapshot.put("percent", Math.round(Math.min(1.0, (double) processed / total) * 1000) / 10.0);
+        }
+        if (startedAtMillis > 0) {
+            long end = finishedAtMillis > 0 ? finishedAtMillis : System.currentTimeMillis();
+            snapshot.put("elapsedMs", end - startedAtMillis);
+            if (status == Status.RUNNING && total > 0 && processed > 0) {
+                snapshot.put("etaSeconds", Math.round((end - startedAtMillis) * (double) (total - processed) / processed / 1000));
+            }
+        }
+        if (cancelRequested) {
+            snapshot.put("cancelRequested", true);
+        }
+        if (error != null) {
+            snapshot.put("error", error);
+        }
+        return snapshot;
+    }
+}
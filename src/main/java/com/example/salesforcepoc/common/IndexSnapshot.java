@@ -0,0 +1,155 @@
+package com.example.salesforcepoc.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * An index snapshot is an index directory built offline by IndexBuilderCli, merged to one segment, with a
+ * snapshot.json manifest beside the index files describing how it was built: source file, document count,
+ * layout, the terms to warm searchers with, and a fingerprint of the committed files.
+ * <p>
+ * The fingerprint is a SHA-256 over the name, length and Lucene footer checksum of every file of the
+ * latest commit, so it identifies the index contents without reading them, and a snapshot that was
+ * copied incompletely or rebuilt in place no longer matches its manifest.
+ */
+public final class IndexSnapshot {
+
+    public static final String MANIFEST_FILE = "snapshot.json";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private IndexSnapshot() {
+    }
+
+    /**
+     * SHA-256 of the latest commit's files, in name order
+     */
+    public static String fingerprint(Directory directory) throws IOException {
+        MessageDigest digest = sha256();
+        for (String file : commitFiles(directory)) {
+            try (IndexInput input = directory.openInput(file, IOContext.READONCE)) {
+                String entry = file + ":" + input.length() + ":" + CodecUtil.retrieveChecksum(input) + "\n";
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * The files of the latest commit, segments_N included, in name order
+     */
+    public static List<String> commitFiles(Directory directory) throws IOException {
+        return new ArrayList<>(new TreeSet<>(SegmentInfos.readLatestCommit(directory).files(true)));
+    }
+
+    /**
+     * SHA-256 of a file's contents, for recording the source a snapshot was built from
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (var in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static void writeManifest(Path snapshotDir, Map<String, Object> manifest) throws IOException {
+        objectMapper.writeValue(snapshotDir.resolve(MANIFEST_FILE).toFile(), manifest);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> readManifest(Path snapshotDir) throws IOException {
+        Path file = snapshotDir.resolve(MANIFEST_FILE);
+        if (!Files.exists(file)) {
+            throw new IOException("No " + MANIFEST_FILE + " in " + snapshotDir + "; not an index snapshot");
+        }
+        return objectMapper.readValue(file.toFile(), LinkedHashMap.class);
+    }
+
+    /**
+     * Check the directory's latest commit against the manifest's fingerprint
+     *
+     * @throws IllegalStateException if they differ
+     */
+    public static void verify(Directory directory, Map<String, Object> manifest) throws IOException {
+        String expected = String.valueOf(manifest.get("fingerprint"));
+        String actual = fingerprint(directory);
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("Index snapshot fingerprint mismatch: manifest has " + expected
+                + " but the index files hash to " + actual);
+        }
+    }
+
+    /**
+     * The warmup terms recorded in the manifest for a field, empty if there are none
+     */
+    @SuppressWarnings("unchecked")
+    public static List<String> warmupTerms(Map<String, Object> manifest, String field) {
+        Object warmup = manifest.get("warmup");
+        if (warmup instanceof Map<?, ?> terms && terms.get(field) instanceof List<?> list) {
+            return new ArrayList<>((List<String>) list);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * The field's terms with the highest document frequency, most frequent first
+     */
+    public static List<String> topTerms(IndexReader reader, String field, int count) throws IOException {
+        Terms terms = MultiTerms.getTerms(reader, field);
+        if (terms == null || count <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Map.Entry<String, Integer>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+        TermsEnum termsEnum = terms.iterator();
+        while (termsEnum.next() != null) {
+            int docFreq = termsEnum.docFreq();
+            if (top.size() < count) {
+                top.add(Map.entry(termsEnum.term().utf8ToString(), docFreq));
+            } else if (docFreq > top.peek().getValue()) {
+                top.poll();
+                top.add(Map.entry(termsEnum.term().utf8ToString(), docFreq));
+            }
+        }
+        List<String> result = new ArrayList<>();
+        while (!top.isEmpty()) {
+            result.add(0, top.poll().getKey());
+        }
+        return result;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
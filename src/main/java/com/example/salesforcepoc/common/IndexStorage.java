@@ -0,0 +1,85 @@
+package com.example.salesforcepoc.common;
+
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NRTCachingDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * How the Lucene index is held, chosen with {@code search.index.storage}:
+ * <ul>
+ *   <li>{@code mmap} - files on disk, memory-mapped, with the listed file types (by extension) loaded into
+ *   the page cache when opened so the first queries don't fault them in one page at a time</li>
+ *   <li>{@code heap} - everything on the Java heap, nothing on disk; rebuilt from the database at startup</li>
+ *   <li>{@code hybrid} - memory-mapped, but small newly flushed segments stay on the heap until they are
+ *   merged into larger ones</li>
+ * </ul>
+ */
+public enum IndexStorage {
+    MMAP, HEAP, HYBRID;
+
+    // Segments a merge produces above this size are written straight to disk in hybrid mode
+    private static final double HYBRID_MAX_MERGE_SIZE_MB = 5.0;
+
+    public static IndexStorage parse(String mode) {
+        try {
+            return valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown index storage '" + mode + "', expected mmap, heap or hybrid");
+        }
+    }
+
+    /**
+     * Open the index directory
+     *
+     * @param preloadExtensions file extensions to preload when memory-mapping, e.g. tip (terms index)
+     * @param heapCacheMb       heap held by small segments in hybrid mode
+     */
+    public Directory open(Path path, Set<String> preloadExtensions, double heapCacheMb) throws IOException {
+        if (this == HEAP) {
+            return new ByteBuffersDirectory();
+        }
+        MMapDirectory mmapDirectory = new MMapDirectory(path);
+        mmapDirectory.setPreload((fileName, context) -> preloadExtensions.contains(extension(fileName)));
+        if (this == HYBRID) {
+            return new NRTCachingDirectory(mmapDirectory, HYBRID_MAX_MERGE_SIZE_MB, heapCacheMb);
+        }
+        return mmapDirectory;
+    }
+
+    /**
+     * Open a prebuilt index snapshot for reading. Heap storage copies the files of its latest commit onto
+     * the heap; hybrid storage has nothing to cache, as nothing is written, so it opens the snapshot memory-mapped.
+     */
+    public Directory openSnapshot(Path path, Set<String> preloadExtensions) throws IOException {
+        if (this == HEAP) {
+            ByteBuffersDirectory heapDirectory = new ByteBuffersDirectory();
+            try (Directory source = FSDirectory.open(path)) {
+                for (String file : IndexSnapshot.commitFiles(source)) {
+                    heapDirectory.copyFrom(source, file, file, IOContext.DEFAULT);
+                }
+            }
+            return heapDirectory;
+        }
+        return MMAP.open(path, preloadExtensions, 0);
+    }
+
+    /**
+     * Whether the index survives a restart
+     */
+    public boolean isPersistent() {
+        return this != HEAP;
+    }
+
+    private static String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1);
+    }
+}
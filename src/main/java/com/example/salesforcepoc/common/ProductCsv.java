@@ -0,0 +1,49 @@
+package com.example.salesforcepoc.common;
+
+import com.example.salesforcepoc.entity.Product;
+
+/**
+ * Parses rows of data-all.csv: pipe-separated, after a header line of SUPPLIER_GROUP_ID|PRODUCT_ID|SUPPLIER|
+ * IS_PRIMARY_SUPPLIER|ITEM_DESCRIPTION|SMKTS_MERCH_CATEGORY|LIQ_MERCH_CATEGORY|DIGITAL_BRAND_NAME|SUB_BRAND_NAME
+ */
+public final class ProductCsv {
+
+    private ProductCsv() {
+    }
+
+    /**
+     * Product from one pipe-separated CSV row, or null when the row lacks the first five fields or a productId
+     */
+    public static Product parse(String line) {
+        String[] fields = line.split("\\|");
+        if (fields.length < 5 || fields[1].trim().isEmpty()) {
+            return null;
+        }
+        Product product = new Product();
+
+        // Required fields
+        product.setSupplierGroupId(getFieldSafely(fields, 0));
+        product.setProductId(getFieldSafely(fields, 1));
+        product.setSupplier(getFieldSafely(fields, 2));
+        product.setIsPrimarySupplier(getFieldSafely(fields, 3));
+        product.setItemDescription(getFieldSafely(fields, 4));
+
+        // Optional fields - can be null or empty
+        product.setSmktsMerchCategory(getFieldSafely(fields, 5));
+        product.setLiqMerchCategory(getFieldSafely(fields, 6));
+        product.setDigitalBrandName(getFieldSafely(fields, 7));
+        product.setSubBrandName(getFieldSafely(fields, 8));
+        return product;
+    }
+
+    /**
+     * Safely get field value from array, returning null if index doesn't exist or value is empty
+     */
+    private static String getFieldSafely(String[] fields, int index) {
+        if (index >= fields.length) {
+            return null; // Field doesn't exist
+        }
+        String value = fields[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.salesforcepoc.common;
+
+import com.example.salesforcepoc.entity.Product;
+import org.apache.lucene.codecs.lucene95.Lucene95Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+
+import java.util.Map;
+
+/**
+ * The Lucene document layout of a product, shared by the search service and the offline index builder so
+ * both write the same index: the fields of each document, the index sort, and the commit user data that
+ * records which layout an index was written with.
+ */
+public final class ProductIndexSchema {
+
+    // Bumped when the document layout changes; an index written with another version is rebuilt at startup
+    public static final String SCHEMA_VERSION = "5";
+    public static final String SCHEMA_VERSION_KEY = "schemaVersion";
+    public static final String STORED_LAYOUT_KEY = "storedLayout";
+    public static final String COMMITTED_AT_KEY = "committedAt";
+    // complete once a commit holds every acknowledged write; rebuilding or updating when a crash may have
+    // left the index partial or behind its source, which startup then replays
+    public static final String INDEX_STATE_KEY = "indexState";
+    public static final String STATE_COMPLETE = "complete";
+    public static final String STATE_REBUILDING = "rebuilding";
+    public static final String STATE_UPDATING = "updating";
+    // The one stored field of the lean layout
+    public static final String PRODUCT_RECORD_FIELD = "product";
+    // Untokenized product ID, the key documents are replaced and deleted by
+    public static final String PRODUCT_KEY_FIELD = "productKey";
+    // Documents are kept in this order within each segment when search.index.sort is on
+    public static final Sort INDEX_SORT = new Sort(
+        new SortField(ProductQueryBuilder.SUPPLIER_ID_FIELD, SortField.Type.STRING),
+        new SortField("productId", SortField.Type.STRING));
+
+    private ProductIndexSchema() {
+    }
+
+    /**
+     * lean (one compact stored record per product) is true, full (every field stored separately) is false
+     */
+    public static boolean parseStoredLayout(String layout) {
+        switch (layout.trim().toLowerCase()) {
+            case "lean":
+                return true;
+            case "full":
+                return false;
+            default:
+                throw new IllegalArgumentException("Unknown stored layout '" + layout + "', expected lean or full");
+        }
+    }
+
+    public static String layoutName(boolean leanLayout) {
+        return leanLayout ? "lean" : "full";
+    }
+
+    public static Lucene95Codec.Mode parseStoredCompression(String mode) {
+        try {
+            return Lucene95Codec.Mode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown stored compression '" + mode
+                + "', expected best_speed or best_compression");
+        }
+    }
+
+    /**
+     * Commit user data stamped by a completed full rebuild
+     */
+    public static Map<String, String> schemaUserData(boolean leanLayout) {
+        return Map.of(SCHEMA_VERSION_KEY, SCHEMA_VERSION, STORED_LAYOUT_KEY, layoutName(leanLayout),
+            INDEX_STATE_KEY, STATE_COMPLETE);
+    }
+
+    /**
+     * Whether a commit was written with the current document layout and the given stored layout, and holds
+     * everything that was written before it (no interrupted rebuild, no updates a crash may have lost)
+     */
+    public static boolean isCurrent(Map<String, String> userData, boolean leanLayout) {
+        return SCHEMA_VERSION.equals(userData.get(SCHEMA_VERSION_KEY))
+            && layoutName(leanLayout).equals(userData.get(STORED_LAYOUT_KEY))
+            && STATE_COMPLETE.equals(userData.get(INDEX_STATE_KEY));
+    }
+
+    /**
+     * The term identifying a product's document
+     */
+    public static Term productKey(String productId) {
+        return new Term(PRODUCT_KEY_FIELD, productId);
+    }
+
+    /**
+     * The document for a product - optimized for supplier-based searches with brand and description support.
+     * The lean layout stores the whole product once, as a compact record; the full layout stores each
+     * product field separately.
+     */
+    public static Document toDocument(Product product, boolean leanLayout) {
+        Document doc = new Document();
+        Field.Store store = leanLayout ? Field.Store.NO : Field.Store.YES;
+
+        if (leanLayout) {
+            doc.add(new StoredField(PRODUCT_RECORD_FIELD, ProductRecordCodec.encode(product)));
+        } else {
+            doc.add(new StoredField("productId", product.getProductId()));
+            doc.add(new StoredField("isPrimarySupplier",
+                product.getIsPrimarySupplier() != null ? product.getIsPrimarySupplier() : ""));
+        }
+
+        // Primary index field: supplier (this is our main search target)
+        String supplierId = product.getSupplier() != null ? product.getSupplier() : "";
+        doc.add(new TextField("supplier", supplierId, store));
+        // Exact supplier ID for filter clauses, and with the product ID the index sort key
+        doc.add(new StringField(ProductQueryBuilder.SUPPLIER_ID_FIELD, supplierId, Field.Store.NO));
+        doc.add(new StringField(PRODUCT_KEY_FIELD, product.getProductId(), Field.Store.NO));
+        doc.add(new SortedDocValuesField(ProductQueryBuilder.SUPPLIER_ID_FIELD, new BytesRef(supplierId)));
+        doc.add(new SortedDocValuesField("productId", new BytesRef(product.getProductId())));
+
+        // Secondary searchable fields for fuzzy search
+        String itemDescription = product.getItemDescription() != null ? product.getItemDescription() : "";
+        String digitalBrandName = product.getDigitalBrandName() != null ? product.getDigitalBrandName() : "";
+        String subBrandName = product.getSubBrandName() != null ? product.getSubBrandName() : "";
+
+        doc.add(new TextField("itemDescription", itemDescription, store));
+        doc.add(new TextField("digitalBrandName", digitalBrandName, store));
+        doc.add(new TextField("subBrandName", subBrandName, store));
+
+        // Combined brand field for easier searching; never read back, so not stored
+        String combinedBrand = String.join(" ", digitalBrandName, subBrandName).trim();
+        doc.add(new TextField("brand", combinedBrand, Field.Store.NO));
+
+        // Indexed untokenized for exact filter clauses
+        doc.add(new StringField(ProductQueryBuilder.SUPPLIER_GROUP_FIELD,
+            product.getSupplierGroupId() != null ? product.getSupplierGroupId() : "", store));
+        doc.add(new StringField(ProductQueryBuilder.SMKTS_CATEGORY_FIELD,
+            product.getSmktsMerchCategory() != null ? product.getSmktsMerchCategory() : "", store));
+        doc.add(new StringField(ProductQueryBuilder.LIQ_CATEGORY_FIELD,
+            product.getLiqMerchCategory() != null ? product.getLiqMerchCategory() : "", store));
+
+        // Secondary searchable fields (lighter indexing)
+        doc.add(new TextField("productId", product.getProductId(), Field.Store.NO));
+
+        // Create a supplier-focused combined field for multi-supplier searches
+        String supplierText = String.join(" ",
+            supplierId,
+            product.getSupplierGroupId() != null ? product.getSupplierGroupId() : ""
+        );
+        doc.add(new TextField("supplierSearch", supplierText, Field.Store.NO));
+        return doc;
+    }
+}
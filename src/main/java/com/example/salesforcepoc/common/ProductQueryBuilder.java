@@ -0,0 +1,189 @@
+package com.example.salesforcepoc.common;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Builds product queries directly from their parts, without going through query-string syntax.
+ * <p>
+ * Supplier, supplier group and category constraints are exact matches on untokenized fields, added as
+ * non-scoring FILTER clauses: they don't affect ranking, and Lucene's query cache can keep the documents
+ * they match as a bitset per segment, so a supplier that is filtered on repeatedly is looked up once.
+ * Brand and item description text is analyzed and matched fuzzily, and those clauses are scored.
+ */
+public final class ProductQueryBuilder {
+
+    // Untokenized copies of the filterable values
+    public static final String SUPPLIER_ID_FIELD = "supplierId";
+    public static final String SUPPLIER_GROUP_FIELD = "supplierGroupId";
+    public static final String SMKTS_CATEGORY_FIELD = "smktsMerchCategory";
+    public static final String LIQ_CATEGORY_FIELD = "liqMerchCategory";
+
+    // Tokens longer than this also match within two edits
+    private static final int FUZZY_MIN_TOKEN_LENGTH = 5;
+    private static final int FUZZY_MAX_EDITS = 2;
+
+    private final Analyzer analyzer;
+    private final int maxTermExpansions;
+    private final int minWildcardTermLength;
+    private final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    private boolean empty = true;
+
+    /**
+     * @param maxTermExpansions     index terms a single fuzzy or prefix clause may expand to
+     * @param minWildcardTermLength tokens shorter than this are matched exactly instead of as a prefix
+     */
+    public ProductQueryBuilder(Analyzer analyzer, int maxTermExpansions, int minWildcardTermLength) {
+        this.analyzer = analyzer;
+        this.maxTermExpansions = maxTermExpansions;
+        this.minWildcardTermLength = minWildcardTermLength;
+    }
+
+    /**
+     * Restrict to one or more comma-separated supplier IDs
+     */
+    public ProductQueryBuilder suppliers(String supplierIds) {
+        return filter(SUPPLIER_ID_FIELD, supplierIds);
+    }
+
+    /**
+     * Restrict to one or more comma-separated supplier group IDs
+     */
+    public ProductQueryBuilder supplierGroups(String supplierGroupIds) {
+        return filter(SUPPLIER_GROUP_FIELD, supplierGroupIds);
+    }
+
+    /**
+     * Restrict to products whose supermarket or liquor merchandise category is one of the comma-separated
+     * categories (exact, case-sensitive values)
+     */
+    public ProductQueryBuilder categories(String categories) {
+        Set<String> values = splitList(categories);
+        if (values.isEmpty()) {
+            return this;
+        }
+        Query eitherCategory = new BooleanQuery.Builder()
+            .add(termInSet(SMKTS_CATEGORY_FIELD, values), BooleanClause.Occur.SHOULD)
+            .add(termInSet(LIQ_CATEGORY_FIELD, values), BooleanClause.Occur.SHOULD)
+            .setMinimumNumberShouldMatch(1)
+            .build();
+        return add(eitherCategory, BooleanClause.Occur.FILTER);
+    }
+
+    /**
+     * Fuzzy match on the combined brand field
+     */
+    public ProductQueryBuilder brand(String brandSearch) {
+        return fuzzyText("brand", brandSearch);
+    }
+
+    /**
+     * Fuzzy match on the item description
+     */
+    public ProductQueryBuilder itemDescription(String itemDescriptionSearch) {
+        return fuzzyText("itemDescription", itemDescriptionSearch);
+    }
+
+    /**
+     * Every token of the text must match: tokens longer than four characters as a prefix or within two
+     * edits, shorter ones as a prefix, and tokens below the minimum wildcard length exactly
+     */
+    public ProductQueryBuilder fuzzyText(String field, String text) {
+        if (text == null || text.isBlank()) {
+            return this;
+        }
+        for (String token : analyze(field, text)) {
+            Term term = new Term(field, token);
+            Query tokenQuery;
+            if (token.length() >= FUZZY_MIN_TOKEN_LENGTH) {
+                tokenQuery = new BooleanQuery.Builder()
+                    .add(new FuzzyQuery(term, FUZZY_MAX_EDITS, 0, maxTermExpansions, FuzzyQuery.defaultTranspositions),
+                        BooleanClause.Occur.SHOULD)
+                    .add(prefix(term), BooleanClause.Occur.SHOULD)
+                    .build();
+            } else if (token.length() < minWildcardTermLength) {
+                tokenQuery = new TermQuery(term);
+            } else {
+                tokenQuery = prefix(term);
+            }
+            add(tokenQuery, BooleanClause.Occur.MUST);
+        }
+        return this;
+    }
+
+    /**
+     * The combined query; matches nothing if no clause was added
+     */
+    public Query build() {
+        return empty ? new MatchNoDocsQuery("no product query clauses") : builder.build();
+    }
+
+    private ProductQueryBuilder filter(String field, String commaSeparated) {
+        Set<String> values = splitList(commaSeparated);
+        return values.isEmpty() ? this : add(termInSet(field, values), BooleanClause.Occur.FILTER);
+    }
+
+    private ProductQueryBuilder add(Query query, BooleanClause.Occur occur) {
+        builder.add(query, occur);
+        empty = false;
+        return this;
+    }
+
+    // A term set even for a single value: the query cache never caches a plain term query
+    private static Query termInSet(String field, Set<String> values) {
+        return new TermInSetQuery(field, values.stream().map(BytesRef::new).collect(Collectors.toList()));
+    }
+
+    private Query prefix(Term term) {
+        return new PrefixQuery(term, new MultiTermQuery.TopTermsBlendedFreqScoringRewrite(maxTermExpansions));
+    }
+
+    private List<String> analyze(String field, String text) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAttribute.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    /**
+     * Trimmed, non-empty, distinct entries of a comma-separated list
+     */
+    public static Set<String> splitList(String commaSeparated) {
+        if (commaSeparated == null) {
+            return Set.of();
+        }
+        return Arrays.stream(commaSeparated.split(","))
+            .map(String::trim)
+            .filter(value -> !value.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.salesforcepoc.common;
+
+import com.example.salesforcepoc.entity.Product;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of a product, stored as the single stored field of the lean index layout: a format
+ * byte, then each product field as a variable-length byte count (0 for null, else length + 1) followed by
+ * its UTF-8 bytes, in a fixed order so no field names are stored.
+ */
+public final class ProductRecordCodec {
+
+    private static final byte FORMAT = 1;
+
+    private ProductRecordCodec() {
+    }
+
+    public static BytesRef encode(Product product) {
+        ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        try {
+            out.writeByte(FORMAT);
+            writeValue(out, product.getProductId());
+            writeValue(out, product.getSupplierGroupId());
+            writeValue(out, product.getSupplier());
+            writeValue(out, product.getIsPrimarySupplier());
+            writeValue(out, product.getItemDescription());
+            writeValue(out, product.getSmktsMerchCategory());
+            writeValue(out, product.getLiqMerchCategory());
+            writeValue(out, product.getDigitalBrandName());
+            writeValue(out, product.getSubBrandName());
+        } catch (IOException e) {
+            // Declared by DataOutput, but an in-memory buffer never throws it
+            throw new UncheckedIOException(e);
+        }
+        return new BytesRef(out.toArrayCopy());
+    }
+
+    /**
+     * Unmanaged product rebuilt from its record
+     *
+     * @throws IllegalArgumentException for a record written in another format
+     */
+    public static Product decode(BytesRef record) {
+        ByteArrayDataInput in = new ByteArrayDataInput(record.bytes, record.offset, record.length);
+        byte format = in.readByte();
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Unsupported product record format " + format);
+        }
+        Product product = new Product();
+        product.setProductId(readValue(in));
+        product.setSupplierGroupId(readValue(in));
+        product.setSupplier(readValue(in));
+        product.setIsPrimarySupplier(readValue(in));
+        product.setItemDescription(readValue(in));
+        product.setSmktsMerchCategory(readValue(in));
+        product.setLiqMerchCategory(readValue(in));
+        product.setDigitalBrandName(readValue(in));
+        product.setSubBrandName(readValue(in));
+        return product;
+    }
+
+    private static void writeValue(ByteBuffersDataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeVInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeVInt(bytes.length + 1);
+        out.writeBytes(bytes);
+    }
+
+    private static String readValue(ByteArrayDataInput in) {
+        int length = in.readVInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readBytes(bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
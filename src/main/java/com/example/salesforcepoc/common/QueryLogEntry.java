@@ -0,0 +1,103 @@
+package com.example.salesforcepoc.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * One captured search request, written as a single JSON line to the query log
+ * and read back by the replay tool.
+ */
+public class QueryLogEntry {
+
+    private long timestamp;
+    private String endpoint;
+    private Map<String, String> params = new LinkedHashMap<>();
+    private int resultCount;
+    private Integer totalHits;
+    private String resultHash;
+    private Map<String, Long> latencyMicros = new LinkedHashMap<>();
+    private long indexGeneration;
+
+    // Default constructor
+    public QueryLogEntry() {}
+
+    /**
+     * Stable fingerprint of an ordered result list, used to diff result sets between runs
+     */
+    public static String resultHash(List<String> productIds) {
+        CRC32 crc = new CRC32();
+        for (String productId : productIds) {
+            crc.update((productId != null ? productId : "").getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    // Getters and Setters
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    public void setParams(Map<String, String> params) {
+        this.params = params;
+    }
+
+    public int getResultCount() {
+        return resultCount;
+    }
+
+    public void setResultCount(int resultCount) {
+        this.resultCount = resultCount;
+    }
+
+    public Integer getTotalHits() {
+        return totalHits;
+    }
+
+    public void setTotalHits(Integer totalHits) {
+        this.totalHits = totalHits;
+    }
+
+    public String getResultHash() {
+        return resultHash;
+    }
+
+    public void setResultHash(String resultHash) {
+        this.resultHash = resultHash;
+    }
+
+    public Map<String, Long> getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    public void setLatencyMicros(Map<String, Long> latencyMicros) {
+        this.latencyMicros = latencyMicros;
+    }
+
+    public long getIndexGeneration() {
+        return indexGeneration;
+    }
+
+    public void setIndexGeneration(long indexGeneration) {
+        this.indexGeneration = indexGeneration;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.salesforcepoc.common;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diagnostic view of one Lucene query: how it was parsed and rewritten, how many index terms its
+ * fuzzy/wildcard clauses expanded to, where execution time went and how many documents matched.
+ * Produced for slow requests and by the on-demand profile endpoint.
+ */
+public class QueryProfileReport {
+
+    private long timestamp;
+    private String path;
+    private Map<String, String> params = new LinkedHashMap<>();
+    private Long elapsedMs;
+    private Map<String, Long> stageMicros;
+    private String query;
+    private String rewrittenQuery;
+    private long expandedTerms;
+    private Map<String, Long> expandedTermsByClause = new LinkedHashMap<>();
+    private int totalHits;
+    private long profiledSearchMicros;
+    private List<Map<String, Object>> profile = new ArrayList<>();
+    private List<Map<String, Object>> explanations = new ArrayList<>();
+
+    // Default constructor
+    public QueryProfileReport() {}
+
+    // Getters and Setters
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    public void setParams(Map<String, String> params) {
+        this.params = params;
+    }
+
+    public Long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(Long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    public Map<String, Long> getStageMicros() {
+        return stageMicros;
+    }
+
+    public void setStageMicros(Map<String, Long> stageMicros) {
+        this.stageMicros = stageMicros;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getRewrittenQuery() {
+        return rewrittenQuery;
+    }
+
+    public void setRewrittenQuery(String rewrittenQuery) {
+        this.rewrittenQuery = rewrittenQuery;
+    }
+
+    public long getExpandedTerms() {
+        return expandedTerms;
+    }
+
+    public void setExpandedTerms(long expandedTerms) {
+        this.expandedTerms = expandedTerms;
+    }
+
+    public Map<String, Long> getExpandedTermsByClause() {
+        return expandedTermsByClause;
+    }
+
+    public void setExpandedTermsByClause(Map<String, Long> expandedTermsByClause) {
+        this.expandedTermsByClause = expandedTermsByClause;
+    }
+
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    public void setTotalHits(int totalHits) {
+        this.totalHits = totalHits;
+    }
+
+    public long getProfiledSearchMicros() {
+        return profiledSearchMicros;
+    }
+
+    public void setProfiledSearchMicros(long profiledSearchMicros) {
+        this.profiledSearchMicros = profiledSearchMicros;
+    }
+
+    public List<Map<String, Object>> getProfile() {
+        return profile;
+    }
+
+    public void setProfile(List<Map<String, Object>> profile) {
+        this.profile = profile;
+    }
+
+    public List<Map<String, Object>> getExplanations() {
+        return explanations;
+    }
+
+    public void setExplanations(List<Map<String, Object>> explanations) {
+        this.explanations = explanations;
+    }
+}
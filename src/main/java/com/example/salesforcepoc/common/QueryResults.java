@@ -1,14 +1,53 @@
 package com.example.salesforcepoc.common;
 
+import com.example.salesforcepoc.entity.Product;
+
+import java.util.ArrayList;
 import java.util.List;
 
 public final class QueryResults {
     private final List<String> productIds;
     private final Integer matchingResultsCount;
+    private final boolean partial;
+    private final boolean countLowerBound;
+    private final String error;
+    private final List<Product> products;
 
     public QueryResults(List<String> productIds, Integer matchingResultsCount) {
+        this(productIds, matchingResultsCount, false);
+    }
+
+    public QueryResults(List<String> productIds, Integer matchingResultsCount, boolean partial) {
+        this(productIds, matchingResultsCount, partial, null, null);
+    }
+
+    public QueryResults(List<String> productIds, Integer matchingResultsCount, boolean partial, List<Product> products) {
+        this(productIds, matchingResultsCount, partial, null, products);
+    }
+
+    private QueryResults(List<String> productIds, Integer matchingResultsCount, boolean partial, String error,
+                         List<Product> products) {
+        this(productIds, matchingResultsCount, partial, false, error, products);
+    }
+
+    private QueryResults(List<String> productIds, Integer matchingResultsCount, boolean partial,
+                         boolean countLowerBound, String error, List<Product> products) {
         this.productIds = productIds;
         this.matchingResultsCount = matchingResultsCount;
+        this.partial = partial;
+        this.countLowerBound = countLowerBound;
+        this.error = error;
+        this.products = products;
+    }
+
+    // Empty results for one entry of a batch that could not be run; there is nothing for it to hydrate
+    public static QueryResults failed(String error) {
+        return new QueryResults(new ArrayList<>(), 0, false, error, List.of());
+    }
+
+    // The same results, with matchingResultsCount only a lower bound: counting stopped once it was reached
+    public QueryResults withCountLowerBound() {
+        return new QueryResults(productIds, matchingResultsCount, partial, true, error, products);
     }
 
     public List<String> getProductIds() {
@@ -18,4 +57,22 @@ public final class QueryResults {
     public Integer getMatchingResultsCount() {
         return matchingResultsCount;
     }
+
+    // True when the time budget expired before collection finished
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public boolean isCountLowerBound() {
+        return countLowerBound;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    // Products built from stored index fields, or null when they have to be hydrated from the database
+    public List<Product> getProducts() {
+        return products;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.example.salesforcepoc.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate request counts per key in fixed memory, and the keys requested most. A count-min sketch
+ * (depth rows of width counters, conservative update) estimates each key's count, never below the true
+ * count; a small candidate table keeps the keys with the highest estimates, replacing its lowest entry when
+ * a key overtakes it. Once sampleSize requests have been counted every count is halved, so keys that were
+ * popular earlier give way to the ones popular now.
+ */
+public class RequestFrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+        0x97cb3127L, 0xe2b6c2aaL, 0x2f7c6b4dL, 0x5d3c7f8fL
+    };
+
+    private final int[][] counts;
+    private final int mask;
+    private final int maxCandidates;
+    private final int sampleSize;
+    private final Map<String, Integer> candidates = new HashMap<>();
+    private int additions;
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     * @param maxCandidates keys tracked as possible top keys
+     * @param sampleSize requests counted between halvings
+     */
+    public RequestFrequencySketch(int width, int maxCandidates, int sampleSize) {
+        int tableSize = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.counts = new int[DEPTH][tableSize];
+        this.mask = tableSize - 1;
+        this.maxCandidates = Math.max(1, maxCandidates);
+        this.sampleSize = Math.max(1, sampleSize);
+    }
+
+    /**
+     * Count one request for the key
+     */
+    public synchronized void record(String key) {
+        int hash = spread(key.hashCode());
+        int[] slots = new int[DEPTH];
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            slots[row] = slot(hash, row);
+            min = Math.min(min, counts[row][slots[row]]);
+        }
+        // Conservative update: only the counters at the minimum grow, which keeps collisions from inflating estimates
+        for (int row = 0; row < DEPTH; row++) {
+            if (counts[row][slots[row]] == min) {
+                counts[row][slots[row]]++;
+            }
+        }
+        offer(key, min + 1);
+
+        if (++additions >= sampleSize) {
+            halve();
+        }
+    }
+
+    /**
+     * Estimated requests for the key since counts were last halved
+     */
+    public synchronized int estimate(String key) {
+        int hash = spread(key.hashCode());
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counts[row][slot(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Up to count keys with an estimate of at least minCount, most requested first
+     */
+    public synchronized List<String> top(int count, int minCount) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(candidates.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            if (result.size() >= count || entry.getValue() < minCount) {
+                break;
+            }
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        for (int[] row : counts) {
+            Arrays.fill(row, 0);
+        }
+        candidates.clear();
+        additions = 0;
+    }
+
+    private void offer(String key, int estimate) {
+        if (candidates.containsKey(key) || candidates.size() < maxCandidates) {
+            candidates.put(key, estimate);
+            return;
+        }
+        Map.Entry<String, Integer> lowest = null;
+        for (Map.Entry<String, Integer> entry : candidates.entrySet()) {
+            if (lowest == null || entry.getValue() < lowest.getValue()) {
+                lowest = entry;
+            }
+        }
+        if (estimate > lowest.getValue()) {
+            candidates.remove(lowest.getKey());
+            candidates.put(key, estimate);
+        }
+    }
+
+    private void halve() {
+        for (int[] row : counts) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        candidates.replaceAll((key, estimate) -> estimate >>> 1);
+        candidates.values().removeIf(estimate -> estimate == 0);
+        additions = 0;
+    }
+
+    private int slot(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.salesforcepoc.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-request stopwatch. Each {@link #mark(String)} attributes the time since the previous mark
+ * to the named stage; marking the same stage again accumulates (e.g. per-batch work in a loop).
+ * Not thread-safe: one instance belongs to one request, whose stages may run one after another on
+ * different executor threads.
+ */
+public final class StageTimer {
+
+    private final long startNanos;
+    private long lastNanos;
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+
+    public StageTimer() {
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+    }
+
+    public void mark(String stage) {
+        long now = System.nanoTime();
+        stageNanos.merge(stage, now - lastNanos, Long::sum);
+        lastNanos = now;
+    }
+
+    public long getTotalNanos() {
+        return lastNanos - startNanos;
+    }
+
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    public Map<String, Long> getStageNanos() {
+        return stageNanos;
+    }
+
+    /**
+     * Stage breakdown in microseconds, including a "total" entry
+     */
+    public Map<String, Long> toMicros() {
+        Map<String, Long> micros = new LinkedHashMap<>();
+        stageNanos.forEach((stage, nanos) -> micros.put(stage, nanos / 1000));
+        micros.put("total", getTotalNanos() / 1000);
+        return micros;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.salesforcepoc.common;
+
+/**
+ * One supplier search in a batch: the same parameters as GET /api/productBySupplier/{supplierIds}
+ */
+public class SupplierSearchRequest {
+
+    private String supplierIds;
+    private String brandSearch;
+    private String itemDescriptionSearch;
+    // Optional comma-separated filters
+    private String supplierGroupIds;
+    private String categories;
+    private int limit = 500;
+
+    // Default constructor
+    public SupplierSearchRequest() {}
+
+    // Getters and Setters
+    public String getSupplierIds() {
+        return supplierIds;
+    }
+
+    public void setSupplierIds(String supplierIds) {
+        this.supplierIds = supplierIds;
+    }
+
+    public String getBrandSearch() {
+        return brandSearch;
+    }
+
+    public void setBrandSearch(String brandSearch) {
+        this.brandSearch = brandSearch;
+    }
+
+    public String getItemDescriptionSearch() {
+        return itemDescriptionSearch;
+    }
+
+    public void setItemDescriptionSearch(String itemDescriptionSearch) {
+        this.itemDescriptionSearch = itemDescriptionSearch;
+    }
+
+    public String getSupplierGroupIds() {
+        return supplierGroupIds;
+    }
+
+    public void setSupplierGroupIds(String supplierGroupIds) {
+        this.supplierGroupIds = supplierGroupIds;
+    }
+
+    public String getCategories() {
+        return categories;
+    }
+
+    public void setCategories(String categories) {
+        this.categories = categories;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.salesforcepoc.common;
+
+import org.apache.lucene.index.QueryTimeout;
+
+/**
+ * Wall-clock budget for one request, shared by the Lucene collection phase (as a {@link QueryTimeout})
+ * and product hydration. Once any stage observes the deadline, {@link #isExceeded()} stays true so the
+ * response can be flagged as partial.
+ */
+public final class TimeBudget implements QueryTimeout {
+
+    private final long budgetMillis;
+    private final long deadlineNanos;
+    private volatile boolean exceeded;
+
+    private TimeBudget(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+        this.deadlineNanos = System.nanoTime() + budgetMillis * 1_000_000L;
+    }
+
+    /**
+     * Budget starting now; zero or negative means unlimited
+     */
+    public static TimeBudget ofMillis(long budgetMillis) {
+        return new TimeBudget(budgetMillis);
+    }
+
+    public static TimeBudget unlimited() {
+        return new TimeBudget(0);
+    }
+
+    public boolean isLimited() {
+        return budgetMillis > 0;
+    }
+
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * Check the deadline, remembering if it has passed
+     */
+    public boolean isExpired() {
+        if (budgetMillis > 0 && System.nanoTime() - deadlineNanos >= 0) {
+            exceeded = true;
+        }
+        return exceeded;
+    }
+
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    @Override
+    public boolean shouldExit() {
+        return isExpired();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.salesforcepoc.config;
+
+import com.example.salesforcepoc.service.AdmissionControlService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Applies admission control before a request reaches its controller: rejected requests get a 429 with
+ * Retry-After straight away instead of holding a Tomcat thread. The permit is returned when the request
+ * completes; for async requests that is after the async dispatch, not when the controller method returns.
+ */
+@Component
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String GROUP_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".group";
+    private static final String START_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".start";
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!admissionControlService.isEnabled() || request.getAttribute(GROUP_ATTRIBUTE) != null) {
+            // Async re-dispatch of a request that already holds a permit
+            return true;
+        }
+        String group = admissionControlService.resolveGroup(request.getRequestURI().substring(request.getContextPath().length()));
+        if (group == null) {
+            return true;
+        }
+
+        if (!admissionControlService.tryAcquire(group)) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControlService.getRetryAfterSeconds(group)));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Too many concurrent requests\",\"group\":\"" + group + "\"}");
+            return false;
+        }
+        request.setAttribute(GROUP_ATTRIBUTE, group);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.isAsyncStarted()) {
+            // Handler returned an async result; the permit is released after the async dispatch completes
+            return;
+        }
+        String group = (String) request.getAttribute(GROUP_ATTRIBUTE);
+        if (group == null) {
+            return;
+        }
+        request.removeAttribute(GROUP_ATTRIBUTE);
+        long latencyNanos = System.nanoTime() - (Long) request.getAttribute(START_ATTRIBUTE);
+        boolean success = ex == null && response.getStatus() < 500;
+        admissionControlService.release(group, latencyNanos, success);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.salesforcepoc.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bounded in-process caches in front of H2. Products are cached by ID with a maximum entry count; supplier
+ * lookups cache whole result pages, weighted by the number of rows they hold, so a few very large suppliers
+ * cannot crowd out everything else.
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String PRODUCTS_BY_ID = "productsById";
+    public static final String SUPPLIER_PAGES = "supplierPages";
+
+    @Value("${search.cache.products.max-size:100000}")
+    private long productsMaxSize;
+
+    @Value("${search.cache.supplier-pages.max-weight:200000}")
+    private long supplierPagesMaxWeight;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Only the caches registered here exist; a lookup of any other name returns null
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache(PRODUCTS_BY_ID, Caffeine.newBuilder()
+                .maximumSize(productsMaxSize)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(SUPPLIER_PAGES, Caffeine.newBuilder()
+                .maximumWeight(supplierPagesMaxWeight)
+                .<Object, Object>weigher((key, rows) -> Math.max(1, rows instanceof Collection<?> page ? page.size() : 1))
+                .recordStats()
+                .build());
+        System.out.println("Caches configured: " + PRODUCTS_BY_ID + " (max " + productsMaxSize + " products), "
+                + SUPPLIER_PAGES + " (max " + supplierPagesMaxWeight + " rows)");
+        return cacheManager;
+    }
+}
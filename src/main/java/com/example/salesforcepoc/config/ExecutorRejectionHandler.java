@@ -0,0 +1,33 @@
+package com.example.salesforcepoc.config;
+
+import com.example.salesforcepoc.service.SearchMetricsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Answers requests whose work could not be queued, because a search or hydration pool's queue was full,
+ * with 503 and Retry-After, whether the rejection happened before or after the request went async.
+ */
+@RestControllerAdvice
+public class ExecutorRejectionHandler {
+
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleRejected(RejectedExecutionException e) {
+        searchMetricsService.increment("executor.rejected");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS))
+            .body(Map.of("error", "Search executors are saturated"));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.salesforcepoc.config;
+
+import com.example.salesforcepoc.service.AdmissionControlService;
+import com.example.salesforcepoc.service.CsvImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Answers search and lookup requests (the admission-controlled paths) with 503 and Retry-After until the
+ * startup import has finished, so nothing is served from a half-loaded database or index. Diagnostics and
+ * the import status endpoint stay available.
+ */
+@Component
+public class ReadinessInterceptor implements HandlerInterceptor {
+
+    private static final int RETRY_AFTER_SECONDS = 5;
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (csvImportService.getProgress().isReady()) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (admissionControlService.resolveGroup(path) == null) {
+            return true;
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Index is not ready\",\"phase\":\""
+            + csvImportService.getProgress().getPhase() + "\"}");
+        return false;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.salesforcepoc.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the cron-scheduled index jobs (search.index.jobs.*-cron)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
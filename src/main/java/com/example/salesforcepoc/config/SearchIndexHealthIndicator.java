@@ -0,0 +1,33 @@
+package com.example.salesforcepoc.config;
+
+import com.example.salesforcepoc.common.ImportProgress;
+import com.example.salesforcepoc.service.CsvImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * "searchIndex" health: out of service while the startup import and indexing are running, down if they
+ * failed. Part of the readiness group, so a node only takes traffic once its index matches the database.
+ */
+@Component
+public class SearchIndexHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    @Override
+    public Health health() {
+        ImportProgress progress = csvImportService.getProgress();
+        Health.Builder builder;
+        if (progress.isReady()) {
+            builder = Health.up();
+        } else if (progress.getPhase() == ImportProgress.Phase.FAILED) {
+            builder = Health.down();
+        } else {
+            builder = Health.outOfService();
+        }
+        return builder.withDetails(progress.snapshot()).build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.salesforcepoc.config;
+
+import com.example.salesforcepoc.service.LuceneSearchService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.List;
+
+/**
+ * On a search-only node the database holds no products, so endpoints that read them from it (database
+ * search and comparison, reindexing changed products, keyset supplier pages, the catalogue export) answer 501
+ * instead of an empty result.
+ * Supplier exports are still available from the index through /api/search/supplier/stream.
+ */
+@Component
+public class SearchOnlyModeInterceptor implements HandlerInterceptor {
+
+    private static final List<String> DATABASE_PATHS = List.of(
+        "/api/search/database", "/api/search/compare", "/api/search/index/products", "/api/products/**", "/api/export/**");
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    private LuceneSearchService luceneSearchService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!luceneSearchService.isSearchOnly()) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (DATABASE_PATHS.stream().noneMatch(pattern -> pathMatcher.match(pattern, path))) {
+            return true;
+        }
+        response.setStatus(HttpStatus.NOT_IMPLEMENTED.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Not available on a search-only node\",\"path\":\"" + path + "\"}");
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.salesforcepoc.config;
+
+import com.example.salesforcepoc.common.FieldProjection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ReadinessInterceptor readinessInterceptor;
+
+    @Autowired
+    private AdmissionControlInterceptor admissionControlInterceptor;
+
+    @Autowired
+    private SearchOnlyModeInterceptor searchOnlyModeInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Not-ready requests are turned away before they take an admission permit
+        // Database-only endpoints on a search-only node are turned away first, as they would never be ready
+        registry.addInterceptor(searchOnlyModeInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(readinessInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(admissionControlInterceptor).addPathPatterns("/api/**");
+    }
+
+    /**
+     * Product carries a field-projection filter; every Jackson converter (JSON, Smile, CBOR) serializes all
+     * fields unless a response supplies its own projection
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof AbstractJackson2HttpMessageConverter jacksonConverter) {
+                jacksonConverter.getObjectMapper().setFilterProvider(FieldProjection.all().filterProvider());
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.salesforcepoc.controller;
+
+import com.example.salesforcepoc.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    /**
+     * Export products as pipe-delimited CSV in the import layout, optionally filtered by supplier,
+     * supplier group or category (either merch category) and optionally gzip-compressed
+     */
+    @GetMapping("/products")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(required = false) String supplier,
+            @RequestParam(required = false) String supplierGroupId,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        String supplierFilter = blankToNull(supplier);
+        String groupFilter = blankToNull(supplierGroupId);
+        String categoryFilter = blankToNull(category);
+        
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 64 * 1024);
+                exportService.exportCsv(supplierFilter, groupFilter, categoryFilter, gzipStream);
+                gzipStream.finish();
+            } else {
+                exportService.exportCsv(supplierFilter, groupFilter, categoryFilter, outputStream);
+            }
+        };
+        
+        String fileName = gzip ? "products.csv.gz" : "products.csv";
+        return ResponseEntity.ok()
+            .contentType(gzip ? MediaType.parseMediaType("application/gzip") : new MediaType("text", "csv"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+            .body(body);
+    }
+    
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
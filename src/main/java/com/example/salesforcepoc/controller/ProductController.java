@@ -1,22 +1,42 @@
 package com.example.salesforcepoc.controller;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.salesforcepoc.common.BatchSearchRequest;
 import com.example.salesforcepoc.common.BrandCategoryResults;
+import com.example.salesforcepoc.common.FieldProjection;
 import com.example.salesforcepoc.common.QueryResults;
+import com.example.salesforcepoc.common.StageTimer;
+import com.example.salesforcepoc.common.SupplierSearchRequest;
+import com.example.salesforcepoc.common.TimeBudget;
 import com.example.salesforcepoc.entity.Product;
+import com.example.salesforcepoc.repository.ProductSummary;
+import com.example.salesforcepoc.service.HotSupplierService;
 import com.example.salesforcepoc.service.LuceneSearchService;
 import com.example.salesforcepoc.service.ProductService;
+import com.example.salesforcepoc.service.QueryLogService;
+import com.example.salesforcepoc.service.SearchExecutorService;
+import com.example.salesforcepoc.service.SearchMetricsService;
+import com.example.salesforcepoc.service.SlowQueryService;
 
 @RestController
 @RequestMapping("/api")
@@ -28,78 +48,281 @@ public class ProductController {
     @Autowired
     private LuceneSearchService luceneSearchService;
     
+    @Autowired
+    private QueryLogService queryLogService;
+    
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+    
+    @Autowired
+    private SlowQueryService slowQueryService;
+    
+    @Autowired
+    private SearchExecutorService searchExecutorService;
+    
+    @Autowired
+    private HotSupplierService hotSupplierService;
+    
+    // Stored fields the brand/category aggregation needs, loaded alongside any projection
+    private static final String[] AGGREGATED_FIELDS = {
+        "digitalBrandName", "subBrandName", "smktsMerchCategory", "liqMerchCategory"
+    };
+    
+    @Value("${search.batch.max-queries:100}")
+    private int maxBatchQueries;
+    
+    /**
+     * Supplier search with fuzzy brand/description filters, optionally narrowed to comma-separated supplier
+     * groups and merchandise categories. fields= limits the product fields returned; when they are all
+     * stored in the index the products are built from it without touching the database.
+     */
     @GetMapping("/productBySupplier/{supplierIds}")
-    public BrandCategoryResults getProductsBySupplierWithFilters(
+    public CompletableFuture<ResponseEntity<MappingJacksonValue>> getProductsBySupplierWithFilters(
             @PathVariable String supplierIds,
             @RequestParam(required = false) String brandSearch,
             @RequestParam(required = false) String itemDescriptionSearch,
-            @RequestParam(defaultValue = "500") int limit) {
+            @RequestParam(required = false) String supplierGroupIds,
+            @RequestParam(required = false) String categories,
+            @RequestParam(defaultValue = "500") int limit,
+            @RequestParam(required = false) Long timeoutMs,
+            @RequestParam(required = false) String fields) {
         
+        FieldProjection projection;
         try {
-            long startTime = System.currentTimeMillis();
-            
-            QueryResults queryResults = luceneSearchService.searchProductsBySupplierWithFilters(
-                supplierIds, brandSearch, itemDescriptionSearch, limit);
-            
-            List<Product> products = new ArrayList<>();
-            for (String productId : queryResults.getProductIds()) {
-                Product product = productService.getProductByProductId(productId);
-                if (product != null) {
-                    products.add(product);
-                }
-            }
-            
-            // Extract unique brands (both smkts and liq brands)
-            Set<String> uniqueBrands = new LinkedHashSet<>();
-            Set<String> uniqueCategories = new LinkedHashSet<>();
-            
-            for (Product product : products) {
-                // Add digital brand name
-                if (product.getDigitalBrandName() != null && !product.getDigitalBrandName().trim().isEmpty()) {
-                    uniqueBrands.add(product.getDigitalBrandName().trim());
-                }
-                
-                // Add sub brand name
-                if (product.getSubBrandName() != null && !product.getSubBrandName().trim().isEmpty()) {
-                    uniqueBrands.add(product.getSubBrandName().trim());
-                }
-                
-                // Add smkts merch category
-                if (product.getSmktsMerchCategory() != null && !product.getSmktsMerchCategory().trim().isEmpty()) {
-                    uniqueCategories.add(product.getSmktsMerchCategory().trim());
-                }
-                
-                // Add liq merch category
-                if (product.getLiqMerchCategory() != null && !product.getLiqMerchCategory().trim().isEmpty()) {
-                    uniqueCategories.add(product.getLiqMerchCategory().trim());
-                }
+            projection = FieldProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(new MappingJacksonValue(Map.of("error", e.getMessage()))));
+        }
+        
+        StageTimer timer = new StageTimer();
+        TimeBudget budget = luceneSearchService.createTimeBudget(timeoutMs);
+        
+        SupplierSearchRequest request = new SupplierSearchRequest();
+        request.setSupplierIds(supplierIds);
+        request.setBrandSearch(brandSearch);
+        request.setItemDescriptionSearch(itemDescriptionSearch);
+        request.setSupplierGroupIds(supplierGroupIds);
+        request.setCategories(categories);
+        request.setLimit(limit);
+        
+        Map<String, String> params = QueryLogService.params(
+            "supplierIds", supplierIds,
+            "brandSearch", brandSearch,
+            "itemDescriptionSearch", itemDescriptionSearch,
+            "supplierGroupIds", supplierGroupIds,
+            "categories", categories,
+            "limit", String.valueOf(limit),
+            "timeoutMs", timeoutMs != null ? String.valueOf(timeoutMs) : null,
+            "fields", fields);
+        
+        // Unfiltered pages of the most requested suppliers are held ready after each index change
+        BrandCategoryResults precomputed = hotSupplierService.lookup(request);
+        if (precomputed != null) {
+            timer.mark("precomputed");
+            searchMetricsService.record("productBySupplier", timer, precomputed.getTotalCount());
+            if (queryLogService.isEnabled()) {
+                queryLogService.log("/api/productBySupplier/{supplierIds}", params,
+                    precomputed.getProducts(), precomputed.getTotalCount(), timer);
             }
+            return CompletableFuture.completedFuture(ResponseEntity.ok(projection.apply(precomputed)));
+        }
+        
+        return searchExecutorService.search(() -> {
+            timer.mark("queue");
+            return luceneSearchService.searchProductsBySupplierWithFilters(
+                request, timer, budget, projection.storedFieldsToLoad(AGGREGATED_FIELDS));
+        }).thenCompose(queryResults -> productService.hydrateProductsAsync(queryResults, budget).thenApply(products -> {
+            // Hydration stops once the budget is spent; the response is flagged partial
+            timer.mark("hydrate");
             
-            long endTime = System.currentTimeMillis();
+            BrandCategoryResults results = BrandCategoryResults.fromProducts(products, queryResults.getMatchingResultsCount());
+            results.setTotalCountLowerBound(queryResults.isCountLowerBound());
+            timer.mark("aggregate");
             
-            System.out.println("Supplier search with filters completed in " + (endTime - startTime) + 
+            System.out.println("Supplier search with filters completed in " + timer.getElapsedMillis() + 
                 "ms. Suppliers: " + supplierIds + 
                 (brandSearch != null ? ", Brand: " + brandSearch : "") +
                 (itemDescriptionSearch != null ? ", Description: " + itemDescriptionSearch : "") +
                 ". Found " + products.size() + " results.");
-
-            BrandCategoryResults results = new BrandCategoryResults(
-                products, 
-                queryResults.getMatchingResultsCount(),
-                new ArrayList<>(uniqueBrands),
-                new ArrayList<>(uniqueCategories)
-            );
             
-            return results;
+            searchMetricsService.record("productBySupplier", timer, queryResults.getMatchingResultsCount());
+            slowQueryService.check("productBySupplier", params, timer,
+                () -> luceneSearchService.buildSupplierFilterQuery(request));
+            if (queryLogService.isEnabled()) {
+                queryLogService.log("/api/productBySupplier/{supplierIds}", params,
+                    products, queryResults.getMatchingResultsCount(), timer);
+            }
+
+            if (budget.isExceeded()) {
+                searchMetricsService.increment("timeBudget.exceeded");
+                results.setPartial(true);
+            }
             
-        } catch (Exception e) {
-            System.err.println("Error in getProductsBySupplierWithFilters: " + e.getMessage());
-            return new BrandCategoryResults(
+            return ResponseEntity.ok(projection.apply(results));
+        })).exceptionally(e -> {
+            System.err.println("Error in getProductsBySupplierWithFilters: " + SearchExecutorService.failureCause(e).getMessage());
+            return ResponseEntity.ok(projection.apply(new BrandCategoryResults(
                 new ArrayList<>(),
                 0,
                 new ArrayList<>(),
                 new ArrayList<>()
-            );
+            )));
+        });
+    }
+    
+    /**
+     * Run many supplier searches in one round trip. All queries see the same index snapshot and run in
+     * parallel; products are hydrated once even when several queries return them. Results are in request order.
+     */
+    @PostMapping("/productBySupplier/batch")
+    public CompletableFuture<ResponseEntity<MappingJacksonValue>> getProductsBySupplierBatch(@RequestBody BatchSearchRequest request) {
+        List<SupplierSearchRequest> queries = request.getQueries() != null ? request.getQueries() : new ArrayList<>();
+        if (queries.size() > maxBatchQueries) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new MappingJacksonValue(Map.of(
+                "error", "Batch has " + queries.size() + " queries, the maximum is " + maxBatchQueries
+            ))));
         }
+        FieldProjection projection;
+        try {
+            projection = FieldProjection.parse(request.getFields());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(new MappingJacksonValue(Map.of("error", e.getMessage()))));
+        }
+        
+        StageTimer timer = new StageTimer();
+        TimeBudget budget = luceneSearchService.createTimeBudget(request.getTimeoutMs());
+        Set<String> storedFields = projection.storedFieldsToLoad(AGGREGATED_FIELDS);
+        
+        return searchExecutorService.search(() -> {
+            timer.mark("queue");
+            return luceneSearchService.searchProductsBySupplierBatch(queries, timer, budget, storedFields);
+        }).thenCompose(queryResults -> {
+            // One hydration pass over the distinct IDs of the queries the index did not supply products for
+            List<String> allProductIds = new ArrayList<>();
+            List<String> idsToHydrate = new ArrayList<>();
+            Map<String, Product> indexProducts = new HashMap<>();
+            for (QueryResults entry : queryResults) {
+                allProductIds.addAll(entry.getProductIds());
+                if (entry.getProducts() != null) {
+                    for (Product product : entry.getProducts()) {
+                        indexProducts.put(product.getProductId(), product);
+                    }
+                } else {
+                    idsToHydrate.addAll(entry.getProductIds());
+                }
+            }
+            // Result IDs that repeat another query's, counted before hydration so unresolvable IDs don't add to it
+            int deduplicated = allProductIds.size() - new HashSet<>(allProductIds).size();
+            CompletableFuture<Map<String, Product>> hydrated = !idsToHydrate.isEmpty() && !budget.isExpired()
+                ? searchExecutorService.hydrate(() -> {
+                    Map<String, Product> products = new HashMap<>(indexProducts);
+                    products.putAll(productService.getProductsByProductIds(idsToHydrate));
+                    return products;
+                })
+                : CompletableFuture.completedFuture(indexProducts);
+            return hydrated.thenApply(productsById -> {
+                timer.mark("hydrate");
+                
+                List<BrandCategoryResults> results = new ArrayList<>();
+                List<Map<String, Object>> errors = new ArrayList<>();
+                long totalHits = 0;
+                for (int i = 0; i < queryResults.size(); i++) {
+                    QueryResults entry = queryResults.get(i);
+                    List<Product> products = new ArrayList<>();
+                    for (String productId : entry.getProductIds()) {
+                        Product product = productsById.get(productId);
+                        if (product != null) {
+                            products.add(product);
+                        }
+                    }
+                    BrandCategoryResults result = BrandCategoryResults.fromProducts(products, entry.getMatchingResultsCount());
+                    result.setTotalCountLowerBound(entry.isCountLowerBound());
+                    result.setPartial(entry.isPartial() || budget.isExceeded());
+                    results.add(result);
+                    totalHits += entry.getMatchingResultsCount();
+                    if (entry.getError() != null) {
+                        Map<String, Object> error = new LinkedHashMap<>();
+                        error.put("index", i);
+                        error.put("error", entry.getError());
+                        errors.add(error);
+                    }
+                }
+                timer.mark("aggregate");
+                
+                System.out.println("Batch supplier search of " + queries.size() + " queries completed in "
+                    + timer.getElapsedMillis() + "ms. Resolved " + productsById.size() + " distinct products for "
+                    + allProductIds.size() + " results, " + idsToHydrate.size() + " of them hydrated from the database.");
+                
+                searchMetricsService.record("productBySupplierBatch", timer, totalHits);
+                searchMetricsService.add("batch.queries", queries.size());
+                searchMetricsService.add("batch.hydration.deduplicated", deduplicated);
+                slowQueryService.check("productBySupplierBatch",
+                    QueryLogService.params("queries", String.valueOf(queries.size()), "timeoutMs",
+                        request.getTimeoutMs() != null ? String.valueOf(request.getTimeoutMs()) : null),
+                    timer, null);
+                if (budget.isExceeded()) {
+                    searchMetricsService.increment("timeBudget.exceeded");
+                }
+                
+                Map<String, Object> response = new LinkedHashMap<>();
+                response.put("results", results);
+                response.put("errors", errors);
+                response.put("partial", budget.isExceeded());
+                response.put("timeTaken", timer.getElapsedMillis());
+                return ResponseEntity.ok(projection.apply(response));
+            });
+        }).exceptionally(e -> {
+            String message = SearchExecutorService.failureCause(e).getMessage();
+            System.err.println("Error in getProductsBySupplierBatch: " + message);
+            return ResponseEntity.internalServerError().body(new MappingJacksonValue(Map.of(
+                "error", "Batch search failed: " + message
+            )));
+        });
+    }
+    
+    /**
+     * Database lookup of the suppliers' products, one keyset page at a time in productId order. Pass the
+     * returned nextAfter as after= to fetch the following page; it is null on the last page. Served by the
+     * (supplier, product_id) index, so it stays usable while the Lucene index is rebuilding.
+     * <p>
+     * /products/supplier/{suppliers} and /products/suppliers?suppliers= are aliases of this lookup, kept for
+     * existing clients; all three take a comma-separated supplier list.
+     */
+    @GetMapping({"/products/supplier/{suppliers}", "/products/suppliers/{suppliers}"})
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getProductsBySuppliers(
+            @PathVariable String suppliers,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        StageTimer timer = new StageTimer();
+        return searchExecutorService.hydrate(() -> {
+            timer.mark("queue");
+            List<ProductSummary> page = productService.getSupplierPage(suppliers, after, size);
+            timer.mark("dbQuery");
+            searchMetricsService.record("productsBySupplierDb", timer, page.size());
+            
+            int pageSize = Math.max(1, Math.min(size, ProductService.MAX_PAGE_SIZE));
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("products", page);
+            response.put("size", page.size());
+            response.put("nextAfter", page.size() == pageSize ? page.get(page.size() - 1).getProductId() : null);
+            return ResponseEntity.ok(response);
+        }).exceptionally(e -> {
+            String message = SearchExecutorService.failureCause(e).getMessage();
+            System.err.println("Error in getProductsBySuppliers: " + message);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Supplier lookup failed: " + message));
+        });
+    }
+    
+    /**
+     * Query-parameter alias of {@link #getProductsBySuppliers}
+     */
+    @GetMapping("/products/suppliers")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getProductsBySuppliersParam(
+            @RequestParam String suppliers,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        return getProductsBySuppliers(suppliers, after, size);
     }
 }
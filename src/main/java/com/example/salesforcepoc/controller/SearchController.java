@@ -1,59 +1,229 @@
 package com.example.salesforcepoc.controller;
 
+import com.example.salesforcepoc.common.FieldProjection;
+import com.example.salesforcepoc.common.IndexJob;
+import com.example.salesforcepoc.common.QueryProfileReport;
+import com.example.salesforcepoc.common.StageTimer;
+import com.example.salesforcepoc.common.SupplierSearchRequest;
+import com.example.salesforcepoc.common.TimeBudget;
 import com.example.salesforcepoc.entity.Product;
+import com.example.salesforcepoc.service.AdmissionControlService;
+import com.example.salesforcepoc.service.CsvImportService;
+import com.example.salesforcepoc.service.DatabaseSearchService;
+import com.example.salesforcepoc.service.HotSupplierService;
+import com.example.salesforcepoc.service.IndexJobService;
 import com.example.salesforcepoc.service.LuceneSearchService;
 import com.example.salesforcepoc.service.ProductService;
+import com.example.salesforcepoc.service.QueryLogService;
+import com.example.salesforcepoc.service.SearchExecutorService;
+import com.example.salesforcepoc.service.SearchMetricsService;
+import com.example.salesforcepoc.service.SlowQueryService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.lucene.search.Query;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/search")
 public class SearchController {
 
+    // Set on list responses that were cut short by the request's time budget
+    private static final String PARTIAL_RESULTS_HEADER = "X-Partial-Results";
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @Autowired
     private LuceneSearchService luceneSearchService;
     
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private QueryLogService queryLogService;
+
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+
+    @Autowired
+    private HotSupplierService hotSupplierService;
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Autowired
+    private SlowQueryService slowQueryService;
+
+    @Autowired
+    private SearchExecutorService searchExecutorService;
+
+    @Autowired
+    private DatabaseSearchService databaseSearchService;
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    @Autowired
+    private IndexJobService indexJobService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
-     * Initialize/rebuild the Lucene index
+     * Rebuild the Lucene index as a background job; returns 202 with the job to poll. With wait=true the
+     * request blocks until the job has finished and reports how long it took.
      */
     @PostMapping("/index/rebuild")
-    public ResponseEntity<Map<String, String>> rebuildIndex() {
+    public ResponseEntity<Map<String, Object>> rebuildIndex(@RequestParam(defaultValue = "false") boolean wait) {
+        if (luceneSearchService.isReadOnly()) {
+            return readOnlySnapshotResponse();
+        }
+        IndexJob job = indexJobService.submitRebuild("api");
+        return jobResponse(job, wait);
+    }
+
+    /**
+     * Merge the index down to maxSegments segments as a background job
+     */
+    @PostMapping("/index/force-merge")
+    public ResponseEntity<Map<String, Object>> forceMergeIndex(
+            @RequestParam(defaultValue = "1") int maxSegments,
+            @RequestParam(defaultValue = "false") boolean wait) {
+        if (luceneSearchService.isReadOnly()) {
+            return readOnlySnapshotResponse();
+        }
+        IndexJob job = indexJobService.submitForceMerge(maxSegments, "api");
+        return jobResponse(job, wait);
+    }
+
+    /**
+     * Index jobs, newest first
+     */
+    @GetMapping("/index/jobs")
+    public ResponseEntity<List<Map<String, Object>>> getIndexJobs() {
+        return ResponseEntity.ok(indexJobService.getJobs());
+    }
+
+    @GetMapping("/index/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getIndexJob(@PathVariable String jobId) {
+        IndexJob job = indexJobService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job.snapshot()) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Cancel a queued or running index job; the index is left as it was before the job
+     */
+    @PostMapping("/index/jobs/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelIndexJob(@PathVariable String jobId) {
         try {
-            long startTime = System.currentTimeMillis();
-            luceneSearchService.indexAllProducts();
-            long endTime = System.currentTimeMillis();
-            
+            IndexJob job = indexJobService.cancel(jobId);
+            return job != null ? ResponseEntity.ok(job.snapshot()) : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "status", "error",
+                "message", "Failed to cancel job: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Re-read products from the database after their rows changed and update their index documents; IDs no
+     * longer in the database are removed from the index. The response returns once the change is committed
+     * or, with group durability, queued for the next group commit; searches see it within
+     * search.index.refresh-interval-ms.
+     */
+    @PostMapping("/index/products")
+    public ResponseEntity<Map<String, Object>> reindexProducts(@RequestBody List<String> productIds) {
+        if (luceneSearchService.isReadOnly()) {
+            return readOnlySnapshotResponse();
+        }
+        try {
+            StageTimer timer = new StageTimer();
+            productService.evictProducts(productIds);
+            Map<String, Product> products = productService.loadProducts(productIds);
+            List<String> deletedIds = productIds.stream().filter(id -> !products.containsKey(id)).distinct().toList();
+            timer.mark("load");
+            luceneSearchService.updateProducts(products.values(), deletedIds);
+            timer.mark("index");
             return ResponseEntity.ok(Map.of(
                 "status", "success",
-                "message", "Index rebuilt successfully",
-                "timeTaken", (endTime - startTime) + "ms"
+                "updated", products.size(),
+                "deleted", deletedIds.size(),
+                "timeMs", timer.getElapsedMillis()
             ));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
                 "status", "error",
-                "message", "Failed to rebuild index: " + e.getMessage()
+                "message", "Failed to update products: " + e.getMessage()
             ));
         }
     }
 
+    // A snapshot is replaced by building a new one offline, never modified in place
+    private ResponseEntity<Map<String, Object>> readOnlySnapshotResponse() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+            "status", "error",
+            "message", "The index is a read-only snapshot; build a new one with IndexBuilderCli"
+        ));
+    }
+
+    private ResponseEntity<Map<String, Object>> jobResponse(IndexJob job, boolean wait) {
+        if (!wait) {
+            Map<String, Object> body = job.snapshot();
+            body.put("statusUrl", "/api/search/index/jobs/" + job.getId());
+            return ResponseEntity.accepted().body(body);
+        }
+        try {
+            job.getFuture().get();
+        } catch (Exception e) {
+            // The job records its own outcome; a cancelled future just means it never ran
+        }
+        Map<String, Object> body = job.snapshot();
+        HttpStatus status = job.getStatus() == IndexJob.Status.SUCCEEDED ? HttpStatus.OK
+            : job.getStatus() == IndexJob.Status.CANCELLED ? HttpStatus.CONFLICT : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).body(body);
+    }
+
     /**
-     * Get index statistics
+     * Index size by file type and stored-product retrieval latency, for choosing a stored layout and
+     * compression mode
+     */
+    @GetMapping("/index/footprint")
+    public ResponseEntity<Map<String, Object>> getIndexFootprint(@RequestParam(defaultValue = "1000") int samples) {
+        try {
+            return ResponseEntity.ok(luceneSearchService.getFootprintReport(samples));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "status", "error",
+                "message", "Failed to measure index footprint: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Index health and memory: segments, deletions, commit fingerprint and timestamps, writer and heap usage,
+     * plus cache occupancy. fieldBytes=true adds on-disk bytes per field, which reads the whole index.
      */
     @GetMapping("/index/stats")
-    public ResponseEntity<Map<String, String>> getIndexStats() {
+    public ResponseEntity<Map<String, Object>> getIndexStats(@RequestParam(defaultValue = "false") boolean fieldBytes) {
         try {
-            String stats = luceneSearchService.getIndexStats();
             return ResponseEntity.ok(Map.of(
                 "status", "success",
-                "stats", stats
+                "stats", luceneSearchService.getIndexStats(fieldBytes),
+                "caches", cacheStats()
             ));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of(
@@ -63,161 +233,414 @@ public class SearchController {
         }
     }
 
+    /**
+     * Per-stage latency percentiles, request rates and counters, and the search executors' queue depths and waits
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>(searchMetricsService.getMetrics());
+        metrics.put("executors", searchExecutorService.getStats());
+        return ResponseEntity.ok(metrics);
+    }
+
+    /**
+     * Startup import progress: phase, rows parsed and written, documents indexed, ETA for the current phase
+     */
+    @GetMapping("/import/status")
+    public ResponseEntity<Map<String, Object>> getImportStatus() {
+        return ResponseEntity.ok(csvImportService.getProgress().snapshot());
+    }
+
+    /**
+     * Size, hit ratio and evictions of the product and supplier-page caches and of the Lucene filter cache, and
+     * the precomputed hot supplier pages
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(cacheStats());
+    }
+
+    /**
+     * Drop all cached products, supplier pages, Lucene filter bitsets and precomputed hot supplier pages, e.g.
+     * after editing rows directly in the database
+     */
+    @PostMapping("/cache/clear")
+    public ResponseEntity<Map<String, Object>> clearCaches() {
+        productService.evictCaches();
+        luceneSearchService.clearQueryCache();
+        hotSupplierService.clear();
+        return ResponseEntity.ok(Map.of("status", "success", "caches", cacheStats()));
+    }
+
+    private Map<String, Object> cacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(productService.getCacheStats());
+        stats.put("luceneQueryCache", luceneSearchService.getQueryCacheStats());
+        stats.put("hotSuppliers", hotSupplierService.getStats());
+        return stats;
+    }
+
+    /**
+     * Database full-text index state
+     */
+    @GetMapping("/database/status")
+    public ResponseEntity<Map<String, Object>> getDatabaseSearchStatus() {
+        return ResponseEntity.ok(databaseSearchService.getStatus());
+    }
+
+    /**
+     * Current concurrency limit, in-flight and queued requests per admission-control group
+     */
+    @GetMapping("/admission")
+    public ResponseEntity<Map<String, Object>> getAdmissionStatus() {
+        return ResponseEntity.ok(admissionControlService.getStatus());
+    }
+
+    /**
+     * Most recent requests that exceeded the slow-query threshold, newest first
+     */
+    @GetMapping("/slow-queries")
+    public ResponseEntity<Map<String, Object>> getSlowQueries() {
+        return ResponseEntity.ok(Map.of(
+            "thresholdMs", slowQueryService.getThresholdMs(),
+            "queries", slowQueryService.getRecentSlowQueries()
+        ));
+    }
+
+    /**
+     * Profile a query on demand: pass supplierIds (with optional brandSearch/itemDescriptionSearch,
+     * supplierGroupIds and categories) to profile the productBySupplier query, or query (and optional field) for a raw Lucene query
+     */
+    @GetMapping("/profile")
+    public ResponseEntity<?> profileQuery(
+            @RequestParam(required = false) String supplierIds,
+            @RequestParam(required = false) String brandSearch,
+            @RequestParam(required = false) String itemDescriptionSearch,
+            @RequestParam(required = false) String supplierGroupIds,
+            @RequestParam(required = false) String categories,
+            @RequestParam(defaultValue = "supplier") String field,
+            @RequestParam(required = false) String query,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "3") int explain) {
+        try {
+            Query luceneQuery;
+            if (supplierIds != null && !supplierIds.trim().isEmpty()) {
+                SupplierSearchRequest request = new SupplierSearchRequest();
+                request.setSupplierIds(supplierIds);
+                request.setBrandSearch(brandSearch);
+                request.setItemDescriptionSearch(itemDescriptionSearch);
+                request.setSupplierGroupIds(supplierGroupIds);
+                request.setCategories(categories);
+                luceneQuery = luceneSearchService.buildSupplierFilterQuery(request);
+            } else if (query != null && !query.trim().isEmpty()) {
+                luceneQuery = luceneSearchService.parseQuery(field, query);
+            } else {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Either supplierIds or query is required"
+                ));
+            }
+
+            QueryProfileReport report = luceneSearchService.profileQuery(luceneQuery, limit, explain);
+            report.setPath("profile");
+            report.setParams(QueryLogService.normalizeParams(QueryLogService.params(
+                "supplierIds", supplierIds,
+                "brandSearch", brandSearch,
+                "itemDescriptionSearch", itemDescriptionSearch,
+                "supplierGroupIds", supplierGroupIds,
+                "categories", categories,
+                "field", query != null ? field : null,
+                "query", query)));
+            return ResponseEntity.ok(report);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "error", "Failed to profile query: " + e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Search products using Lucene (optimized for supplier searches)
      */
     @GetMapping("/lucene")
-    public ResponseEntity<List<Product>> searchWithLucene(
+    public CompletableFuture<ResponseEntity<MappingJacksonValue>> searchWithLucene(
             @RequestParam String query,
-            @RequestParam(defaultValue = "50") int limit) {
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) Long timeoutMs,
+            @RequestParam(required = false) String fields) {
+        FieldProjection projection;
         try {
-            long startTime = System.currentTimeMillis();
-            
+            projection = FieldProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(new MappingJacksonValue(Map.of("error", e.getMessage()))));
+        }
+        StageTimer timer = new StageTimer();
+        TimeBudget budget = luceneSearchService.createTimeBudget(timeoutMs);
+        return searchExecutorService.search(() -> {
+            timer.mark("queue");
             // This now searches primarily in the supplier field
-            List<String> productIds = luceneSearchService.searchProducts(query, limit);
-            List<Product> products = new ArrayList<>();
-            
-            for (String productId : productIds) {
-                Product product = productService.getProductByProductId(productId);
-                if (product != null) {
-                    products.add(product);
-                }
-            }
+            return luceneSearchService.searchProducts(query, limit, timer, budget, projection.storedFieldsToLoad());
+        }).thenCompose(queryResults -> productService.hydrateProductsAsync(queryResults, budget)).thenApply(products -> {
+            timer.mark("hydrate");
             
-            long endTime = System.currentTimeMillis();
+            System.out.println("Lucene supplier search completed in " + timer.getElapsedMillis() + "ms. Found " + products.size() + " results.");
+            logQuery("lucene", "/api/search/lucene",
+                QueryLogService.params("query", query, "limit", String.valueOf(limit), "timeoutMs", toParam(timeoutMs), "fields", fields),
+                products, timer, () -> luceneSearchService.parseQuery("supplier", query));
             
-            System.out.println("Lucene supplier search completed in " + (endTime - startTime) + "ms. Found " + products.size() + " results.");
-            
-            return ResponseEntity.ok(products);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().body(new ArrayList<>());
-        }
+            return okWithPartialFlag(projection.apply(products), budget);
+        }).exceptionally(e -> {
+            SearchExecutorService.failureCause(e).printStackTrace();
+            return ResponseEntity.internalServerError().body(new MappingJacksonValue(new ArrayList<>()));
+        });
     }
 
     /**
      * Fast supplier search using optimized Lucene index
      */
     @GetMapping("/supplier")
-    public ResponseEntity<List<Product>> searchBySupplier(
+    public CompletableFuture<ResponseEntity<MappingJacksonValue>> searchBySupplier(
             @RequestParam String supplierIds,
-            @RequestParam(defaultValue = "1000") int limit) {
+            @RequestParam(defaultValue = "1000") int limit,
+            @RequestParam(required = false) Long timeoutMs,
+            @RequestParam(required = false) String fields) {
+        FieldProjection projection;
         try {
-            long startTime = System.currentTimeMillis();
+            projection = FieldProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(new MappingJacksonValue(Map.of("error", e.getMessage()))));
+        }
+        StageTimer timer = new StageTimer();
+        TimeBudget budget = luceneSearchService.createTimeBudget(timeoutMs);
+        return searchExecutorService.search(() -> {
+            timer.mark("queue");
+            return luceneSearchService.searchProductsBySupplier(supplierIds, limit, timer, budget,
+                projection.storedFieldsToLoad());
+        }).thenCompose(queryResults -> productService.hydrateProductsAsync(queryResults, budget)).thenApply(products -> {
+            timer.mark("hydrate");
             
-            List<String> productIds = luceneSearchService.searchProductsBySupplier(supplierIds, limit);
-            List<Product> products = new ArrayList<>();
+            System.out.println("Lucene supplier search for '" + supplierIds + "' completed in " + timer.getElapsedMillis() + "ms. Found " + products.size() + " results.");
+            logQuery("supplier", "/api/search/supplier",
+                QueryLogService.params("supplierIds", supplierIds, "limit", String.valueOf(limit), "timeoutMs", toParam(timeoutMs), "fields", fields),
+                products, timer, () -> luceneSearchService.buildSupplierQuery(supplierIds));
             
-            for (String productId : productIds) {
-                Product product = productService.getProductByProductId(productId);
-                if (product != null) {
-                    products.add(product);
-                }
+            return okWithPartialFlag(projection.apply(products), budget);
+        }).exceptionally(e -> {
+            SearchExecutorService.failureCause(e).printStackTrace();
+            return ResponseEntity.internalServerError().body(new MappingJacksonValue(new ArrayList<>()));
+        });
+    }
+
+    /**
+     * Stream every product of the given suppliers as newline-delimited JSON (format=ndjson, default) or as
+     * a chunked JSON array (format=json). Products are written page by page as they come off the index,
+     * so memory stays bounded however large the catalogue; limit=0 (default) exports everything.
+     * fields= limits the product fields written; index-stored fields are streamed without touching the database.
+     */
+    @GetMapping("/supplier/stream")
+    public ResponseEntity<StreamingResponseBody> streamBySupplier(
+            @RequestParam String supplierIds,
+            @RequestParam(defaultValue = "0") long limit,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String fields) {
+        boolean jsonArray = "json".equalsIgnoreCase(format);
+        FieldProjection projection;
+        try {
+            projection = FieldProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = Map.of("error", e.getMessage());
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, error));
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            StageTimer timer = new StageTimer();
+            ObjectWriter productWriter = objectMapper.writerFor(Product.class)
+                .with(projection.filterProvider())
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            // Each product is written as its own root value; the stream stays open between pages
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (jsonArray) {
+                generator.writeStartArray();
+            } else {
+                generator.setRootValueSeparator(null);
             }
             
-            long endTime = System.currentTimeMillis();
+            long streamed;
+            try {
+                streamed = luceneSearchService.streamProductIdsBySupplier(supplierIds, limit,
+                        projection.storedFieldsToLoad(), timer, (productIds, storedProducts) -> {
+                    List<Product> products = storedProducts;
+                    if (products == null) {
+                        Map<String, Product> productsById = productService.loadProducts(productIds);
+                        products = new ArrayList<>();
+                        for (String productId : productIds) {
+                            Product product = productsById.get(productId);
+                            if (product != null) {
+                                products.add(product);
+                            }
+                        }
+                    }
+                    timer.mark("hydrate");
+                    for (Product product : products) {
+                        productWriter.writeValue(generator, product);
+                        if (!jsonArray) {
+                            generator.writeRaw('\n');
+                        }
+                    }
+                    generator.flush();
+                    timer.mark("write");
+                });
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to stream products for " + supplierIds, e);
+            }
             
-            System.out.println("Lucene supplier search for '" + supplierIds + "' completed in " + (endTime - startTime) + "ms. Found " + products.size() + " results.");
+            if (jsonArray) {
+                generator.writeEndArray();
+            }
+            generator.close();
+            timer.mark("write");
             
-            return ResponseEntity.ok(products);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().body(new ArrayList<>());
-        }
+            System.out.println("Streamed " + streamed + " products for '" + supplierIds + "' in " + timer.getElapsedMillis() + "ms.");
+            searchMetricsService.record("supplierStream", timer, streamed);
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(jsonArray ? MediaType.APPLICATION_JSON : NDJSON)
+            .body(body);
     }
 
     /**
      * Search products by specific field using Lucene
      */
     @GetMapping("/lucene/field")
-    public ResponseEntity<List<Product>> searchByFieldWithLucene(
+    public CompletableFuture<ResponseEntity<MappingJacksonValue>> searchByFieldWithLucene(
             @RequestParam String field,
             @RequestParam String query,
-            @RequestParam(defaultValue = "50") int limit) {
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) Long timeoutMs,
+            @RequestParam(required = false) String fields) {
+        FieldProjection projection;
         try {
-            long startTime = System.currentTimeMillis();
-            
-            List<String> productIds = luceneSearchService.searchProductsByField(field, query, limit);
-            List<Product> products = new ArrayList<>();
-            
-            for (String productId : productIds) {
-                Product product = productService.getProductByProductId(productId);
-                if (product != null) {
-                    products.add(product);
-                }
-            }
-            
-            long endTime = System.currentTimeMillis();
+            projection = FieldProjection.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(
+                ResponseEntity.badRequest().body(new MappingJacksonValue(Map.of("error", e.getMessage()))));
+        }
+        StageTimer timer = new StageTimer();
+        TimeBudget budget = luceneSearchService.createTimeBudget(timeoutMs);
+        return searchExecutorService.search(() -> {
+            timer.mark("queue");
+            return luceneSearchService.searchProductsByField(field, query, limit, timer, budget,
+                projection.storedFieldsToLoad());
+        }).thenCompose(queryResults -> productService.hydrateProductsAsync(queryResults, budget)).thenApply(products -> {
+            timer.mark("hydrate");
             
-            System.out.println("Lucene field search (" + field + ") completed in " + (endTime - startTime) + "ms. Found " + products.size() + " results.");
+            System.out.println("Lucene field search (" + field + ") completed in " + timer.getElapsedMillis() + "ms. Found " + products.size() + " results.");
+            logQuery("luceneField", "/api/search/lucene/field",
+                QueryLogService.params("field", field, "query", query, "limit", String.valueOf(limit), "timeoutMs", toParam(timeoutMs), "fields", fields),
+                products, timer, () -> luceneSearchService.parseQuery(field, query));
             
-            return ResponseEntity.ok(products);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().body(new ArrayList<>());
-        }
+            return okWithPartialFlag(projection.apply(products), budget);
+        }).exceptionally(e -> {
+            SearchExecutorService.failureCause(e).printStackTrace();
+            return ResponseEntity.internalServerError().body(new MappingJacksonValue(new ArrayList<>()));
+        });
     }
 
     /**
-     * Traditional database search (for comparison)
+     * Database search through the full-text index (for comparison)
      */
     @GetMapping("/database")
-    public ResponseEntity<List<Product>> searchWithDatabase(
+    public CompletableFuture<ResponseEntity<List<Product>>> searchWithDatabase(
             @RequestParam String query,
             @RequestParam(defaultValue = "50") int limit) {
-        try {
-            long startTime = System.currentTimeMillis();
-            
-            List<Product> products = productService.searchProducts(query);
-            if (products.size() > limit) {
-                products = products.subList(0, limit);
-            }
-            
-            long endTime = System.currentTimeMillis();
+        StageTimer timer = new StageTimer();
+        return searchExecutorService.hydrate(() -> {
+            timer.mark("queue");
+            List<Product> products = databaseSearchService.search(query, limit);
+            timer.mark("dbSearch");
             
-            System.out.println("Database search completed in " + (endTime - startTime) + "ms. Found " + products.size() + " results.");
+            System.out.println("Database search (" + databaseSearchService.engineFor(query) + ") completed in " + timer.getElapsedMillis() + "ms. Found " + products.size() + " results.");
+            logQuery("database", "/api/search/database",
+                QueryLogService.params("query", query, "limit", String.valueOf(limit)),
+                products, timer, null);
             
             return ResponseEntity.ok(products);
-        } catch (Exception e) {
-            e.printStackTrace();
+        }).exceptionally(e -> {
+            SearchExecutorService.failureCause(e).printStackTrace();
             return ResponseEntity.internalServerError().body(new ArrayList<>());
-        }
+        });
     }
 
     /**
      * Performance comparison endpoint
      */
     @GetMapping("/compare")
-    public ResponseEntity<Map<String, Object>> compareSearchMethods(@RequestParam String query) {
-        try {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> compareSearchMethods(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "50") int limit) {
+        // Each side runs on its own pool; the timings exclude time spent queued
+        return searchExecutorService.search(() -> {
             // Test Lucene search
             long luceneStart = System.currentTimeMillis();
-            List<String> luceneProductIds = luceneSearchService.searchProducts(query, 50);
+            List<String> luceneProductIds = luceneSearchService.searchProducts(query, limit);
             long luceneEnd = System.currentTimeMillis();
-            long luceneTime = luceneEnd - luceneStart;
+            return new long[] {luceneEnd - luceneStart, luceneProductIds.size()};
+        }).thenCompose(lucene -> searchExecutorService.hydrate(() -> {
+            long luceneTime = lucene[0];
 
-            // Test database search
+            // Test database search with the same limit, so both sides do comparable work
             long dbStart = System.currentTimeMillis();
-            List<Product> dbProducts = productService.searchProducts(query);
+            List<Product> dbProducts = databaseSearchService.search(query, limit);
             long dbEnd = System.currentTimeMillis();
             long dbTime = dbEnd - dbStart;
 
-            return ResponseEntity.ok(Map.of(
+            return ResponseEntity.ok(Map.<String, Object>of(
                 "query", query,
                 "lucene", Map.of(
                     "timeMs", luceneTime,
-                    "resultsCount", luceneProductIds.size()
+                    "resultsCount", lucene[1]
                 ),
                 "database", Map.of(
+                    "engine", databaseSearchService.engineFor(query),
                     "timeMs", dbTime,
                     "resultsCount", dbProducts.size()
                 ),
                 "speedupFactor", dbTime > 0 ? (double) dbTime / luceneTime : 0
             ));
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body(Map.of(
-                "error", "Failed to compare search methods: " + e.getMessage()
-            ));
+        })).exceptionally(e -> ResponseEntity.internalServerError().body(Map.of(
+            "error", "Failed to compare search methods: " + SearchExecutorService.failureCause(e).getMessage()
+        )));
+    }
+
+    /**
+     * 200 response, marked with the partial-results header when the time budget cut the request short
+     */
+    private ResponseEntity<MappingJacksonValue> okWithPartialFlag(MappingJacksonValue products, TimeBudget budget) {
+        if (budget.isExceeded()) {
+            searchMetricsService.increment("timeBudget.exceeded");
+            return ResponseEntity.ok().header(PARTIAL_RESULTS_HEADER, "true").body(products);
+        }
+        return ResponseEntity.ok(products);
+    }
+
+    private static String toParam(Long value) {
+        return value != null ? String.valueOf(value) : null;
+    }
+
+    /**
+     * Record a completed request in the stage metrics, the slow-query log and, when enabled, the query log
+     */
+    private void logQuery(String metricsPath, String endpoint, Map<String, String> params,
+                          List<Product> products, StageTimer timer, SlowQueryService.QuerySource querySource) {
+        searchMetricsService.record(metricsPath, timer, products.size());
+        slowQueryService.check(metricsPath, params, timer, querySource);
+        if (queryLogService.isEnabled()) {
+            queryLogService.log(endpoint, params, products, null, timer);
         }
     }
 }
@@ -1,9 +1,18 @@
 package com.example.salesforcepoc.entity;
 
+import com.example.salesforcepoc.common.FieldProjection;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "products")
+@JsonFilter(FieldProjection.FILTER_ID)
+@Table(name = "products", indexes = {
+    // Supplier lookups, with product_id so keyset pages are read in index order
+    @Index(name = "idx_products_supplier_product", columnList = "supplier, product_id"),
+    @Index(name = "idx_products_supplier_group", columnList = "supplier_group_id"),
+    @Index(name = "idx_products_smkts_category", columnList = "smkts_merch_category"),
+    @Index(name = "idx_products_liq_category", columnList = "liq_merch_category")
+})
 public class Product {
     
     @Id
@@ -1,12 +1,18 @@
 package com.example.salesforcepoc.repository;
 
 import com.example.salesforcepoc.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, String> {
@@ -18,6 +24,15 @@ public interface ProductRepository extends JpaRepository<Product, String> {
     @Query("SELECT p FROM Product p WHERE p.supplier IN :suppliers")
     List<Product> findBySupplierIn(@Param("suppliers") List<String> suppliers);
     
+    // Keyset page of supplier products: the next rows after the given product ID, served by idx_products_supplier_product
+    @Query("SELECT p.productId AS productId, p.supplierGroupId AS supplierGroupId, p.supplier AS supplier, " +
+           "p.isPrimarySupplier AS isPrimarySupplier, p.itemDescription AS itemDescription, " +
+           "p.smktsMerchCategory AS smktsMerchCategory, p.liqMerchCategory AS liqMerchCategory, " +
+           "p.digitalBrandName AS digitalBrandName, p.subBrandName AS subBrandName " +
+           "FROM Product p WHERE p.supplier IN :suppliers AND p.productId > :after ORDER BY p.productId")
+    List<ProductSummary> findSupplierPage(@Param("suppliers") Collection<String> suppliers,
+                                          @Param("after") String after, Limit limit);
+    
     // Required for SearchController - find product by productId
     Product findByProductId(String productId);
     
@@ -31,4 +46,35 @@ public interface ProductRepository extends JpaRepository<Product, String> {
            "LOWER(p.smktsMerchCategory) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(p.liqMerchCategory) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<Product> searchProducts(@Param("searchTerm") String searchTerm);
+    
+    // Same LIKE scan, stopping once the limit is reached
+    @Query("SELECT p FROM Product p WHERE " +
+           "LOWER(p.productId) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.supplier) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.itemDescription) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.digitalBrandName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.subBrandName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.smktsMerchCategory) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(p.liqMerchCategory) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    List<Product> searchProducts(@Param("searchTerm") String searchTerm, Limit limit);
+    
+    // Word search through H2's full-text index (see DatabaseSearchService); the limit is applied inside FT_SEARCH_DATA
+    @Query(value = "SELECT p.* FROM FT_SEARCH_DATA(:searchTerm, :maxResults, 0) ft " +
+                   "JOIN products p ON p.product_id = ft.KEYS[1] WHERE ft.\"TABLE\" = 'PRODUCTS'",
+           nativeQuery = true)
+    List<Product> fullTextSearch(@Param("searchTerm") String searchTerm, @Param("maxResults") int maxResults);
+    
+    // Forward-only, read-only cursor for exports; a null filter matches everything
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p WHERE " +
+           "(:supplier IS NULL OR p.supplier = :supplier) AND " +
+           "(:supplierGroupId IS NULL OR p.supplierGroupId = :supplierGroupId) AND " +
+           "(:category IS NULL OR p.smktsMerchCategory = :category OR p.liqMerchCategory = :category) " +
+           "ORDER BY p.productId")
+    Stream<Product> streamForExport(@Param("supplier") String supplier,
+                                    @Param("supplierGroupId") String supplierGroupId,
+                                    @Param("category") String category);
 }
@@ -0,0 +1,30 @@
+package com.example.salesforcepoc.repository;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Read-only view of a product row for paged supplier lookups. Fetched as plain column tuples, so pages
+ * never create managed entities or persistence-context snapshots.
+ */
+@JsonPropertyOrder({"productId", "supplierGroupId", "supplier", "isPrimarySupplier", "itemDescription",
+        "smktsMerchCategory", "liqMerchCategory", "digitalBrandName", "subBrandName"})
+public interface ProductSummary {
+
+    String getProductId();
+
+    String getSupplierGroupId();
+
+    String getSupplier();
+
+    String getIsPrimarySupplier();
+
+    String getItemDescription();
+
+    String getSmktsMerchCategory();
+
+    String getLiqMerchCategory();
+
+    String getDigitalBrandName();
+
+    String getSubBrandName();
+}
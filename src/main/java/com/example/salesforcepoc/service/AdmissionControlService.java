@@ -0,0 +1,133 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.AdaptiveConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
+import jakarta.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admission control for the search API. Endpoints are grouped by the resource they lean on, and each
+ * group gets its own adaptive concurrency limit, so a burst of database LIKE scans can only ever hold
+ * part of the Hikari pool and Tomcat's threads while supplier lookups keep theirs.
+ * <p>
+ * Per-group settings live under {@code search.admission.<group>.*}: initial-limit, min-limit,
+ * max-limit, queue-size and max-wait-ms.
+ */
+@Service
+public class AdmissionControlService {
+
+    public static final String GROUP_DATABASE = "database";
+    public static final String GROUP_SUPPLIER = "supplier";
+    public static final String GROUP_SEARCH = "search";
+    public static final String GROUP_EXPORT = "export";
+
+    // Checked in order; diagnostics endpoints (metrics, stats, slow queries) are deliberately unlimited
+    private static final Map<String, List<String>> GROUP_PATTERNS = new LinkedHashMap<>();
+    static {
+        // Streams are long-lived by design, so they get their own fixed limit instead of skewing the latency of the others
+        GROUP_PATTERNS.put(GROUP_EXPORT, List.of("/api/search/supplier/stream", "/api/export/**"));
+        GROUP_PATTERNS.put(GROUP_DATABASE, List.of("/api/search/database", "/api/search/compare"));
+        GROUP_PATTERNS.put(GROUP_SUPPLIER, List.of("/api/productBySupplier/**", "/api/search/supplier", "/api/products/**"));
+        GROUP_PATTERNS.put(GROUP_SEARCH, List.of("/api/search/lucene", "/api/search/lucene/field", "/api/search/profile"));
+    }
+
+    @Value("${search.admission.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new LinkedHashMap<>();
+    private final Map<String, Long> maxWaitMillis = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // Database limits stay well under the 20-connection pool so hydration always has connections left
+        configureGroup(GROUP_DATABASE, 4, 1, 8, 16, 100);
+        configureGroup(GROUP_SUPPLIER, 32, 4, 150, 200, 250);
+        configureGroup(GROUP_SEARCH, 16, 2, 64, 64, 200);
+        configureGroup(GROUP_EXPORT, 4, 4, 4, 8, 1000);
+        System.out.println("Admission control " + (enabled ? "enabled" : "disabled") + ": " + getStatus().get("groups"));
+    }
+
+    private void configureGroup(String group, int initialLimit, int minLimit, int maxLimit, int queueSize, long maxWaitMs) {
+        String prefix = "search.admission." + group + ".";
+        limiters.put(group, new AdaptiveConcurrencyLimiter(
+                environment.getProperty(prefix + "initial-limit", Integer.class, initialLimit),
+                environment.getProperty(prefix + "min-limit", Integer.class, minLimit),
+                environment.getProperty(prefix + "max-limit", Integer.class, maxLimit),
+                environment.getProperty(prefix + "queue-size", Integer.class, queueSize)));
+        maxWaitMillis.put(group, environment.getProperty(prefix + "max-wait-ms", Long.class, maxWaitMs));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Group for a request path, or null if the path is not admission-controlled
+     */
+    public String resolveGroup(String path) {
+        for (Map.Entry<String, List<String>> entry : GROUP_PATTERNS.entrySet()) {
+            for (String pattern : entry.getValue()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Try to admit a request to the group, waiting up to the group's max wait
+     */
+    public boolean tryAcquire(String group) {
+        boolean admitted;
+        try {
+            admitted = limiters.get(group).tryAcquire(maxWaitMillis.get(group));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            searchMetricsService.increment("admission." + group + ".rejected");
+        }
+        return admitted;
+    }
+
+    public void release(String group, long latencyNanos, boolean success) {
+        limiters.get(group).release(latencyNanos, success);
+    }
+
+    /**
+     * Seconds a rejected client should wait before retrying: roughly one queue wait, at least a second
+     */
+    public long getRetryAfterSeconds(String group) {
+        return Math.max(1, (maxWaitMillis.get(group) + 999) / 1000);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> groups = new LinkedHashMap<>();
+        limiters.forEach((group, limiter) -> {
+            Map<String, Object> status = limiter.snapshot();
+            status.put("maxWaitMs", maxWaitMillis.get(group));
+            status.put("paths", GROUP_PATTERNS.get(group));
+            groups.put(group, status);
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("groups", groups);
+        return result;
+    }
+}
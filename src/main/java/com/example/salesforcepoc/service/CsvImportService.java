@@ -1,18 +1,37 @@
 package com.example.salesforcepoc.service;
 
+import com.example.salesforcepoc.common.ImportProgress;
+import com.example.salesforcepoc.common.ProductCsv;
+import com.example.salesforcepoc.common.StageTimer;
 import com.example.salesforcepoc.entity.Product;
 import com.example.salesforcepoc.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 
+/**
+ * Loads data-all.csv into the database on startup, then builds the Lucene and full-text indexes. By default
+ * this runs on a background thread so the application starts straight away; search endpoints answer 503
+ * and the readiness probe reports out of service until {@link #getProgress()} reaches READY.
+ * <p>
+ * On a search-only node (search.mode=search-only) the parsed rows go straight into the Lucene index
+ * instead, and the database stays empty.
+ */
 @Service
 public class CsvImportService implements CommandLineRunner {
 
@@ -21,15 +40,75 @@ public class CsvImportService implements CommandLineRunner {
     
     @Autowired
     private LuceneSearchService luceneSearchService;
+    
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+    
+    @Autowired
+    private DatabaseSearchService databaseSearchService;
+    
+    @Autowired
+    private ProductService productService;
+    
+    // false runs the import on the startup thread, as before
+    @Value("${search.import.async:true}")
+    private boolean async;
+    
+    private static final String CSV_RESOURCE = "data-all.csv";
+    
+    private final ImportProgress progress = new ImportProgress();
+    private ExecutorService importExecutor;
 
     @Override
     public void run(String... args) throws Exception {
-        importProductsFromCsv();
+        if (!async) {
+            importProductsFromCsv();
+            return;
+        }
+        importExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "csv-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        importExecutor.submit(this::importProductsFromCsv);
+        System.out.println("CSV import started in the background; search endpoints return 503 until it completes");
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (importExecutor != null) {
+            importExecutor.shutdownNow();
+        }
+    }
+    
+    public ImportProgress getProgress() {
+        return progress;
     }
 
     public void importProductsFromCsv() {
         try {
-            ClassPathResource resource = new ClassPathResource("data-all.csv");
+            ClassPathResource resource = new ClassPathResource(CSV_RESOURCE);
+            StageTimer timer = new StageTimer();
+            
+            if (!resource.exists()) {
+                System.out.println("No data-all.csv on the classpath, serving the existing data");
+                progress.start(0);
+                prepareExistingData();
+                progress.enter(ImportProgress.Phase.READY);
+                return;
+            }
+            progress.start(resource.contentLength());
+            
+            if (luceneSearchService.isReadOnly() && luceneSearchService.isSearchOnly()) {
+                // Nothing to load: the snapshot already holds the products
+                prepareExistingData();
+                progress.enter(ImportProgress.Phase.READY);
+                return;
+            }
+            if (luceneSearchService.isSearchOnly()) {
+                importCsvToIndex(resource, timer);
+                return;
+            }
             
             try (BufferedReader reader = new BufferedReader(
                     new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
@@ -52,34 +131,28 @@ public class CsvImportService implements CommandLineRunner {
                 if (existingCount > 0) {
                     System.out.println("Database already contains products. Skipping import to avoid duplicates.");
                     System.out.println("Delete existing data if you want to re-import all records.");
+                    prepareExistingData();
+                    progress.enter(ImportProgress.Phase.READY);
                     return;
                 }
+                // Rebuilt in one pass after the import instead of row by row through its triggers
+                databaseSearchService.dropIndex();
+                timer.mark("prepare");
                 
                 while ((line = reader.readLine()) != null) { // Import all records
-                    String[] fields = line.split("\\|");
-                    
-                    // Check for minimum required fields (first 5 are essential)
-                    if (fields.length >= 5 && !fields[1].trim().isEmpty()) { // Need at least productId
-                        Product product = new Product();
-                        
-                        // Required fields
-                        product.setSupplierGroupId(getFieldSafely(fields, 0));
-                        product.setProductId(getFieldSafely(fields, 1));
-                        product.setSupplier(getFieldSafely(fields, 2));
-                        product.setIsPrimarySupplier(getFieldSafely(fields, 3));
-                        product.setItemDescription(getFieldSafely(fields, 4));
-                        
-                        // Optional fields - can be null or empty
-                        product.setSmktsMerchCategory(getFieldSafely(fields, 5));
-                        product.setLiqMerchCategory(getFieldSafely(fields, 6));
-                        product.setDigitalBrandName(getFieldSafely(fields, 7));
-                        product.setSubBrandName(getFieldSafely(fields, 8));
-                        
+                    progress.rowParsed(lineBytes(line));
+                    Product product = ProductCsv.parse(line);
+                    if (product != null) {
                         products.add(product);
                         lineCount++;
                         
                         // Save in batches
                         if (products.size() >= batchSize) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new InterruptedException("Import interrupted after " + lineCount + " products");
+                            }
+                            timer.mark("parse");
+                            int writtenBefore = successfullyImported;
                             try {
                                 List<Product> savedProducts = productRepository.saveAll(products);
                                 successfullyImported += savedProducts.size();
@@ -101,6 +174,8 @@ public class CsvImportService implements CommandLineRunner {
                                 }
                                 products.clear();
                             }
+                            progress.rowsWritten(successfullyImported - writtenBefore);
+                            timer.mark("dbWrite");
                         }
                     } else {
                         // Log skipped lines for debugging
@@ -110,7 +185,10 @@ public class CsvImportService implements CommandLineRunner {
                     }
                 }
                 
+                timer.mark("parse");
+                
                 // Save remaining products
+                int writtenBefore = successfullyImported;
                 if (!products.isEmpty()) {
                     try {
                         List<Product> savedProducts = productRepository.saveAll(products);
@@ -129,6 +207,9 @@ public class CsvImportService implements CommandLineRunner {
                     }
                 }
                 
+                progress.rowsWritten(successfullyImported - writtenBefore);
+                timer.mark("dbWrite");
+                
                 System.out.println("CSV import completed.");
                 System.out.println("Total lines processed: " + lineCount);
                 System.out.println("Successfully imported: " + successfullyImported);
@@ -137,29 +218,131 @@ public class CsvImportService implements CommandLineRunner {
                 // Verify actual count in database
                 long finalCount = productRepository.count();
                 System.out.println("Final database count: " + finalCount);
+                productService.evictCaches();
                 
-                // Index all products in Lucene for fast searching
-                System.out.println("Starting Lucene indexing...");
-                long indexStartTime = System.currentTimeMillis();
-                luceneSearchService.indexAllProducts();
-                long indexEndTime = System.currentTimeMillis();
-                System.out.println("Lucene indexing completed in " + (indexEndTime - indexStartTime) + "ms");
+                // Index all products in Lucene for fast searching, unless a prebuilt snapshot is served
+                if (!luceneSearchService.isReadOnly()) {
+                    System.out.println("Starting Lucene indexing...");
+                    long indexStartTime = System.currentTimeMillis();
+                    progress.startIndexing(finalCount);
+                    luceneSearchService.indexAllProducts(progress::docsIndexed);
+                    long indexEndTime = System.currentTimeMillis();
+                    System.out.println("Lucene indexing completed in " + (indexEndTime - indexStartTime) + "ms");
+                    timer.mark("index");
+                }
                 
+                progress.enter(ImportProgress.Phase.FULL_TEXT_INDEXING);
+                databaseSearchService.ensureIndex();
+                timer.mark("fullTextIndex");
+                searchMetricsService.record("import", timer, successfullyImported);
+                progress.enter(ImportProgress.Phase.READY);
             }
         } catch (Exception e) {
+            progress.fail(e.getMessage());
             System.err.println("Error importing CSV: " + e.getMessage());
             e.printStackTrace();
         }
     }
     
     /**
-     * Safely get field value from array, returning null if index doesn't exist or value is empty
+     * Search-only startup: serve the existing index if it is current, otherwise index the CSV rows as they
+     * are parsed. Nothing is written to the database.
      */
-    private String getFieldSafely(String[] fields, int index) {
-        if (index >= fields.length) {
-            return null; // Field doesn't exist
+    private void importCsvToIndex(ClassPathResource resource, StageTimer timer) throws IOException {
+        if (luceneSearchService.getDocumentCount() > 0 && luceneSearchService.isSchemaCurrent()) {
+            prepareExistingData();
+            progress.enter(ImportProgress.Phase.READY);
+            return;
+        }
+        System.out.println("Search-only mode: indexing " + CSV_RESOURCE + " straight into Lucene");
+        long indexed = indexCsv(resource, true, progress::docsIndexed, () -> Thread.currentThread().isInterrupted());
+        timer.mark("index");
+        searchMetricsService.record("import", timer, indexed);
+        progress.enter(ImportProgress.Phase.READY);
+    }
+    
+    /**
+     * Rebuild the index from the CSV rather than the database, as a search-only node does
+     *
+     * @see LuceneSearchService#rebuildIndex
+     */
+    public long reindexFromCsv(LongConsumer indexProgress, BooleanSupplier cancelled) throws IOException {
+        ClassPathResource resource = new ClassPathResource(CSV_RESOURCE);
+        if (!resource.exists()) {
+            throw new IOException("No " + CSV_RESOURCE + " on the classpath to index");
+        }
+        return indexCsv(resource, false, indexProgress, cancelled);
+    }
+    
+    // Streams every valid row into an index rebuild; trackImport also counts the rows in the import progress
+    private long indexCsv(ClassPathResource resource, boolean trackImport, LongConsumer indexProgress,
+                          BooleanSupplier cancelled) throws IOException {
+        AtomicLong rows = new AtomicLong();
+        luceneSearchService.rebuildIndex(indexer -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+                // Skip the header line
+                reader.readLine();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (trackImport) {
+                        progress.rowParsed(lineBytes(line));
+                    }
+                    Product product = ProductCsv.parse(line);
+                    if (product != null) {
+                        indexer.accept(product);
+                        rows.incrementAndGet();
+                    }
+                }
+            }
+        }, indexProgress, cancelled);
+        return rows.get();
+    }
+    
+    /**
+     * Make sure both indexes cover products already in the database
+     */
+    private void prepareExistingData() throws IOException {
+        if (luceneSearchService.isSearchOnly()) {
+            // The database is empty by design; whatever the index holds is all there is to serve
+            System.out.println("Search-only mode: serving the existing Lucene index of "
+                + luceneSearchService.getDocumentCount() + " products");
+            return;
+        }
+        progress.enter(ImportProgress.Phase.FULL_TEXT_INDEXING);
+        databaseSearchService.ensureIndex();
+        if (luceneSearchService.isReadOnly()) {
+            // A prebuilt snapshot is served as it is
+            return;
+        }
+        // A heap index (or a deleted index directory) starts empty, an index written by an older version lacks
+        // fields queries now rely on, and a crash can leave a partial rebuild or lose uncommitted updates; in
+        // each case rebuild it from the database
+        if (luceneSearchService.getDocumentCount() == 0 || !luceneSearchService.isSchemaCurrent()) {
+            System.out.println("Lucene index is empty, from an older schema or incomplete, indexing existing products...");
+            progress.startIndexing(productRepository.count());
+            luceneSearchService.indexAllProducts(progress::docsIndexed);
+        }
+    }
+
+    // UTF-8 size of a line read from the CSV, its newline included, so progress is in the same unit as the
+    // resource's content length
+    private static long lineBytes(String line) {
+        long bytes = 1;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < line.length()) {
+                // A surrogate pair is one four-byte code point
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
         }
-        String value = fields[index].trim();
-        return value.isEmpty() ? null : value;
+        return bytes;
     }
 }
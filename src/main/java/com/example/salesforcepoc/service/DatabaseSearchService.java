@@ -0,0 +1,129 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.entity.Product;
+import com.example.salesforcepoc.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Text search in the database tier, backed by H2's native full-text index (an inverted word table kept
+ * current by triggers on the products table). Queries match whole words, all of which must appear in one
+ * of the indexed columns, and the limit is applied inside the index lookup, so a search costs a few index
+ * reads instead of a LIKE scan of every row.
+ * <p>
+ * Falls back to the LIKE scan, still limited, while the index is not built yet or for a query with no
+ * letters or digits to look up.
+ */
+@Service
+public class DatabaseSearchService {
+
+    public static final String ENGINE_FULL_TEXT = "fulltext";
+    public static final String ENGINE_LIKE = "like";
+
+    // Same columns the LIKE search covers
+    private static final String INDEXED_COLUMNS =
+            "PRODUCT_ID,SUPPLIER,ITEM_DESCRIPTION,DIGITAL_BRAND_NAME,SUB_BRAND_NAME,SMKTS_MERCH_CATEGORY,LIQ_MERCH_CATEGORY";
+
+    @Value("${search.database.full-text:true}")
+    private boolean fullTextEnabled;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+
+    private volatile boolean indexReady;
+    private volatile long lastBuildMillis = -1;
+
+    /**
+     * Create the full-text index if it does not exist yet; building it reads every row once
+     */
+    public synchronized void ensureIndex() {
+        if (!fullTextEnabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS FT_INIT FOR 'org.h2.fulltext.FullText.init'");
+            jdbcTemplate.execute("CALL FT_INIT()");
+            if (indexExists()) {
+                System.out.println("Database full-text index already present");
+            } else {
+                long start = System.currentTimeMillis();
+                jdbcTemplate.update("CALL FT_CREATE_INDEX('PUBLIC', 'PRODUCTS', ?)", INDEXED_COLUMNS);
+                lastBuildMillis = System.currentTimeMillis() - start;
+                System.out.println("Database full-text index built in " + lastBuildMillis + "ms");
+            }
+            indexReady = true;
+        } catch (Exception e) {
+            indexReady = false;
+            System.err.println("Database full-text index unavailable, using LIKE search: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the full-text index before a bulk import, so rows are not indexed one trigger call at a time;
+     * {@link #ensureIndex()} rebuilds it in one pass afterwards
+     */
+    public synchronized void dropIndex() {
+        indexReady = false;
+        if (!fullTextEnabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS FT_INIT FOR 'org.h2.fulltext.FullText.init'");
+            jdbcTemplate.execute("CALL FT_INIT()");
+            if (indexExists()) {
+                jdbcTemplate.execute("CALL FT_DROP_INDEX('PUBLIC', 'PRODUCTS')");
+                System.out.println("Dropped database full-text index for import");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to drop database full-text index: " + e.getMessage());
+        }
+    }
+
+    private boolean indexExists() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM FT.INDEXES WHERE SCHEMA = 'PUBLIC' AND \"TABLE\" = 'PRODUCTS'", Integer.class);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Engine a query would run on
+     */
+    public String engineFor(String searchTerm) {
+        return indexReady && searchTerm.codePoints().anyMatch(Character::isLetterOrDigit) ? ENGINE_FULL_TEXT : ENGINE_LIKE;
+    }
+
+    /**
+     * Up to maxResults products matching the search term
+     */
+    public List<Product> search(String searchTerm, int maxResults) {
+        int limit = Math.max(1, maxResults);
+        if (ENGINE_FULL_TEXT.equals(engineFor(searchTerm))) {
+            searchMetricsService.increment("database.fullTextQueries");
+            return productRepository.fullTextSearch(searchTerm, limit);
+        }
+        searchMetricsService.increment("database.likeQueries");
+        return productRepository.searchProducts(searchTerm, Limit.of(limit));
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("fullTextEnabled", fullTextEnabled);
+        status.put("indexReady", indexReady);
+        status.put("indexedColumns", INDEXED_COLUMNS);
+        status.put("lastBuildMs", lastBuildMillis);
+        return status;
+    }
+}
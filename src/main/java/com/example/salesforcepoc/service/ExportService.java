@@ -0,0 +1,127 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.StageTimer;
+import com.example.salesforcepoc.entity.Product;
+import com.example.salesforcepoc.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Catalogue export in the pipe-delimited layout {@link CsvImportService} reads, so an export can be fed
+ * straight back in. Rows come from a forward-only database cursor and go out through a buffered writer;
+ * the persistence context is cleared as rows are written, so memory stays constant however many rows
+ * match, and a slow client simply slows the cursor down.
+ */
+@Service
+public class ExportService {
+
+    public static final String CSV_HEADER = "SUPPLIER_GROUP_ID|PRODUCT_ID|SUPPLIER|IS_PRIMARY_SUPPLIER|ITEM_DESCRIPTION|"
+            + "SMKTS_MERCH_CATEGORY|LIQ_MERCH_CATEGORY|DIGITAL_BRAND_NAME|SUB_BRAND_NAME";
+
+    // Rows written between persistence-context clears
+    private static final int CLEAR_INTERVAL = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        // Spring Data streams must be consumed inside a transaction
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Write every product matching the filters (null matches all) as CSV, header first. Returns the row count.
+     */
+    public long exportCsv(String supplier, String supplierGroupId, String category, OutputStream out) throws IOException {
+        StageTimer timer = new StageTimer();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        long rows;
+        try {
+            rows = readOnlyTransaction.execute(status -> {
+                long written = 0;
+                try (Stream<Product> products = productRepository.streamForExport(supplier, supplierGroupId, category)) {
+                    Iterator<Product> iterator = products.iterator();
+                    while (iterator.hasNext()) {
+                        writer.write(toCsvLine(iterator.next()));
+                        writer.write('\n');
+                        written++;
+                        if (written % CLEAR_INTERVAL == 0) {
+                            entityManager.clear();
+                        }
+                    }
+                } catch (IOException e) {
+                    // Usually the client going away; unwrapped below
+                    throw new UncheckedIOException(e);
+                }
+                return written;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        timer.mark("export");
+
+        searchMetricsService.record("export", timer, rows);
+        searchMetricsService.add("export.rows", rows);
+        System.out.println("Exported " + rows + " products in " + timer.getElapsedMillis() + "ms"
+            + (supplier != null ? ". Supplier: " + supplier : "")
+            + (supplierGroupId != null ? ". Group: " + supplierGroupId : "")
+            + (category != null ? ". Category: " + category : ""));
+        return rows;
+    }
+
+    /**
+     * One CSV row in import column order. The importer splits on '|' without quoting and trims values,
+     * so delimiters and line breaks inside values are replaced with spaces and nulls are written empty.
+     */
+    static String toCsvLine(Product product) {
+        return String.join("|",
+            csvValue(product.getSupplierGroupId()),
+            csvValue(product.getProductId()),
+            csvValue(product.getSupplier()),
+            csvValue(product.getIsPrimarySupplier()),
+            csvValue(product.getItemDescription()),
+            csvValue(product.getSmktsMerchCategory()),
+            csvValue(product.getLiqMerchCategory()),
+            csvValue(product.getDigitalBrandName()),
+            csvValue(product.getSubBrandName()));
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace('|', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+}
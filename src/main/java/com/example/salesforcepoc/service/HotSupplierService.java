@@ -0,0 +1,267 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.BrandCategoryResults;
+import com.example.salesforcepoc.common.FieldProjection;
+import com.example.salesforcepoc.common.ProductQueryBuilder;
+import com.example.salesforcepoc.common.QueryResults;
+import com.example.salesforcepoc.common.RequestFrequencySketch;
+import com.example.salesforcepoc.common.StageTimer;
+import com.example.salesforcepoc.common.SupplierSearchRequest;
+import com.example.salesforcepoc.common.TimeBudget;
+import com.example.salesforcepoc.entity.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Precomputed responses for the suppliers that dominate /api/productBySupplier traffic. Unfiltered requests
+ * are counted per supplier list in a frequency sketch; whenever searchers change (a rebuild, force-merge, or
+ * a refresh that published updates) and periodically as the ranking shifts, a background thread searches,
+ * hydrates and aggregates the first page of the top-n lists. An unfiltered request for one of them is then
+ * answered from memory, as long as its page was built against the searcher that is still current; otherwise
+ * it is searched as usual.
+ */
+@Service
+public class HotSupplierService {
+
+    // Counters per sketch row; distinct supplier lists beyond this share counters and are overestimated
+    private static final int SKETCH_WIDTH = 4096;
+    // Candidate lists tracked per page held, so a list climbing the ranking is seen before it reaches the top
+    private static final int CANDIDATES_PER_PAGE = 4;
+    // Requests counted between halvings of the sketch, relative to its width
+    private static final int SAMPLE_SIZE_FACTOR = 10;
+
+    @Value("${search.hot-suppliers.enabled:true}")
+    private boolean enabled;
+
+    // Supplier lists whose first page is held
+    @Value("${search.hot-suppliers.top-n:20}")
+    private int topN;
+
+    // Requests with this limit (the endpoint's default) are served from the held pages
+    @Value("${search.hot-suppliers.page-limit:500}")
+    private int pageLimit;
+
+    // Estimated requests, since counts were last halved, before a list's page is built
+    @Value("${search.hot-suppliers.min-requests:3}")
+    private int minRequests;
+
+    // How often the ranking is checked for lists that became hot between index changes
+    @Value("${search.hot-suppliers.rerank-interval-ms:10000}")
+    private long rerankIntervalMs;
+
+    @Autowired
+    private LuceneSearchService luceneSearchService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+
+    private RequestFrequencySketch sketch;
+    // Replaced whole by each refresh, so lookups never see a half-built set
+    private volatile Map<String, HotPage> pages = Map.of();
+    private ScheduledExecutorService refresher;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private volatile long lastRefreshAt;
+    private volatile long lastRefreshMs;
+    private volatile int lastRefreshBuilt;
+
+    private static final class HotPage {
+        private final BrandCategoryResults results;
+        private final long searcherVersion;
+        private final long builtAt;
+
+        private HotPage(BrandCategoryResults results, long searcherVersion) {
+            this.results = results;
+            this.searcherVersion = searcherVersion;
+            this.builtAt = System.currentTimeMillis();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        sketch = new RequestFrequencySketch(SKETCH_WIDTH, topN * CANDIDATES_PER_PAGE, SKETCH_WIDTH * SAMPLE_SIZE_FACTOR);
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-supplier-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        luceneSearchService.addSearcherListener(this::scheduleRefresh);
+        refresher.scheduleWithFixedDelay(this::refresh, rerankIntervalMs, rerankIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * The held response for an unfiltered request with the page limit, or null to search as usual. Counts
+     * the request towards its supplier list's frequency either way.
+     */
+    public BrandCategoryResults lookup(SupplierSearchRequest request) {
+        if (!enabled || request.getLimit() != pageLimit || !isUnfiltered(request)) {
+            return null;
+        }
+        String key = key(request.getSupplierIds());
+        if (key.isEmpty()) {
+            return null;
+        }
+        sketch.record(key);
+
+        HotPage page = pages.get(key);
+        if (page == null) {
+            return null;
+        }
+        if (page.searcherVersion != luceneSearchService.getSearcherVersion()) {
+            // The index changed since it was built; the refresh that change scheduled replaces it
+            searchMetricsService.increment("hotSuppliers.stale");
+            return null;
+        }
+        searchMetricsService.increment("hotSuppliers.hits");
+        return page.results;
+    }
+
+    /**
+     * Drop the held pages, e.g. after rows were edited directly in the database; the next refresh rebuilds them
+     */
+    public void clear() {
+        pages = Map.of();
+        scheduleRefresh();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        stats.put("topN", topN);
+        stats.put("pageLimit", pageLimit);
+        stats.put("minRequests", minRequests);
+        long version = luceneSearchService.getSearcherVersion();
+        stats.put("searcherVersion", version);
+        stats.put("lastRefreshAt", lastRefreshAt);
+        stats.put("lastRefreshMs", lastRefreshMs);
+        stats.put("lastRefreshBuilt", lastRefreshBuilt);
+        List<Map<String, Object>> held = new ArrayList<>();
+        pages.forEach((supplierIds, page) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("supplierIds", supplierIds);
+            entry.put("estimatedRequests", sketch.estimate(supplierIds));
+            entry.put("totalCount", page.results.getTotalCount());
+            entry.put("products", page.results.getProducts().size());
+            entry.put("builtAt", page.builtAt);
+            entry.put("current", page.searcherVersion == version);
+            held.add(entry);
+        });
+        stats.put("pages", held);
+        return stats;
+    }
+
+    // Coalesces bursts of searcher changes into one refresh
+    private void scheduleRefresh() {
+        if (refresher == null || !refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(this::refresh);
+        } catch (RejectedExecutionException e) {
+            refreshPending.set(false);
+        }
+    }
+
+    /**
+     * Rebuild the pages of the current top lists that are missing or were built against an older searcher,
+     * and drop those of lists that are no longer hot
+     */
+    private void refresh() {
+        refreshPending.set(false);
+        long started = System.currentTimeMillis();
+        // Read before searching: a page tagged with this version can only be older than the searcher it claims
+        long version = luceneSearchService.getSearcherVersion();
+        Map<String, HotPage> current = pages;
+        Map<String, HotPage> next = new LinkedHashMap<>();
+        int built = 0;
+        for (String supplierIds : sketch.top(topN, minRequests)) {
+            HotPage page = current.get(supplierIds);
+            if (page == null || page.searcherVersion != version) {
+                try {
+                    page = new HotPage(buildPage(supplierIds), version);
+                    built++;
+                } catch (Exception e) {
+                    System.err.println("Precomputing supplier page for " + supplierIds + " failed: " + e.getMessage());
+                    continue;
+                }
+            }
+            next.put(supplierIds, page);
+        }
+        pages = next;
+        if (built > 0) {
+            lastRefreshAt = started;
+            lastRefreshMs = System.currentTimeMillis() - started;
+            lastRefreshBuilt = built;
+            searchMetricsService.add("hotSuppliers.built", built);
+            System.out.println("Precomputed " + built + " hot supplier pages in " + lastRefreshMs + "ms ("
+                + next.size() + " held)");
+        }
+    }
+
+    // The response the endpoint gives an unfiltered request: whole products, so any fields= projection applies
+    private BrandCategoryResults buildPage(String supplierIds) throws Exception {
+        SupplierSearchRequest request = new SupplierSearchRequest();
+        request.setSupplierIds(supplierIds);
+        request.setLimit(pageLimit);
+        TimeBudget budget = TimeBudget.unlimited();
+        QueryResults queryResults = luceneSearchService.searchProductsBySupplierWithFilters(
+            request, new StageTimer(), budget, FieldProjection.all().storedFieldsToLoad());
+        List<Product> products = queryResults.getProducts();
+        if (products == null) {
+            Map<String, Product> productsById = productService.loadProducts(queryResults.getProductIds());
+            products = new ArrayList<>();
+            for (String productId : queryResults.getProductIds()) {
+                Product product = productsById.get(productId);
+                if (product != null) {
+                    products.add(product);
+                }
+            }
+        }
+        BrandCategoryResults page = BrandCategoryResults.fromProducts(products, queryResults.getMatchingResultsCount());
+        page.setTotalCountLowerBound(queryResults.isCountLowerBound());
+        return page;
+    }
+
+    private static boolean isUnfiltered(SupplierSearchRequest request) {
+        return isBlank(request.getBrandSearch()) && isBlank(request.getItemDescriptionSearch())
+            && isBlank(request.getSupplierGroupIds()) && isBlank(request.getCategories());
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    // Supplier order and duplicates don't change the results, so "2,1,1" and "1,2" share a page
+    private static String key(String supplierIds) {
+        return String.join(",", new TreeSet<>(ProductQueryBuilder.splitList(supplierIds)));
+    }
+}
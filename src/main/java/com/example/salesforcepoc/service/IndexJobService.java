@@ -0,0 +1,213 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.IndexJob;
+import com.example.salesforcepoc.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs index rebuilds and force-merges as background jobs, one at a time in submission order. Each job has
+ * an ID to poll and can be cancelled; a rebuild can be paced to a maximum indexing rate so it leaves CPU
+ * for live searches, and both kinds can be scheduled off-peak with cron expressions.
+ */
+@Service
+public class IndexJobService {
+
+    @Autowired
+    private LuceneSearchService luceneSearchService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    // Pacing for rebuilds; 0 indexes as fast as possible
+    @Value("${search.index.jobs.max-docs-per-second:0}")
+    private long maxDocsPerSecond;
+
+    // Finished jobs kept for the status endpoints
+    @Value("${search.index.jobs.history:50}")
+    private int historySize;
+
+    @Value("${search.index.jobs.force-merge-max-segments:1}")
+    private int scheduledMaxSegments;
+
+    private final AtomicLong jobSequence = new AtomicLong();
+    private final Map<String, IndexJob> jobs = new LinkedHashMap<>();
+    private ExecutorService jobExecutor;
+
+    @PostConstruct
+    public void init() {
+        jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-jobs");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    public IndexJob submitRebuild(String trigger) {
+        IndexJob job = register(IndexJob.Type.REBUILD, trigger);
+        job.setFuture(jobExecutor.submit(() -> runRebuild(job)));
+        return job;
+    }
+
+    public IndexJob submitForceMerge(int maxSegments, String trigger) {
+        IndexJob job = register(IndexJob.Type.FORCE_MERGE, trigger);
+        job.setFuture(jobExecutor.submit(() -> runForceMerge(job, maxSegments)));
+        return job;
+    }
+
+    private synchronized IndexJob register(IndexJob.Type type, String trigger) {
+        IndexJob job = new IndexJob("job-" + jobSequence.incrementAndGet(), type, trigger);
+        jobs.put(job.getId(), job);
+        // Trim the oldest finished jobs beyond the history size
+        int finished = (int) jobs.values().stream().filter(IndexJob::isFinished).count();
+        Iterator<IndexJob> iterator = jobs.values().iterator();
+        while (finished > historySize && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+        return job;
+    }
+
+    private void runRebuild(IndexJob job) {
+        if (job.isCancelRequested()) {
+            job.finished(IndexJob.Status.CANCELLED, null);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        LongConsumer progress = indexed -> {
+            job.progress(indexed);
+            pace(indexed, start);
+        };
+        BooleanSupplier cancelled = () -> job.isCancelRequested() || Thread.currentThread().isInterrupted();
+        try {
+            if (luceneSearchService.isSearchOnly()) {
+                // No products in the database; the CSV is the source, and the current index size the estimate
+                job.started(luceneSearchService.getDocumentCount());
+                csvImportService.reindexFromCsv(progress, cancelled);
+            } else {
+                job.started(productRepository.count());
+                luceneSearchService.indexAllProducts(progress, cancelled);
+            }
+            job.finished(IndexJob.Status.SUCCEEDED, null);
+        } catch (CancellationException e) {
+            job.finished(IndexJob.Status.CANCELLED, e.getMessage());
+        } catch (Exception e) {
+            job.finished(IndexJob.Status.FAILED, e.getMessage());
+            System.err.println("Index job " + job.getId() + " failed: " + e.getMessage());
+        }
+    }
+
+    // Sleep until the rebuild is back under the configured rate
+    private void pace(long indexed, long startMillis) {
+        if (maxDocsPerSecond <= 0) {
+            return;
+        }
+        long aheadMillis = indexed * 1000 / maxDocsPerSecond - (System.currentTimeMillis() - startMillis);
+        if (aheadMillis > 0) {
+            try {
+                Thread.sleep(aheadMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runForceMerge(IndexJob job, int maxSegments) {
+        if (job.isCancelRequested()) {
+            job.finished(IndexJob.Status.CANCELLED, null);
+            return;
+        }
+        try {
+            job.started(-1);
+            luceneSearchService.forceMerge(maxSegments);
+            job.finished(IndexJob.Status.SUCCEEDED, null);
+        } catch (CancellationException e) {
+            job.finished(IndexJob.Status.CANCELLED, e.getMessage());
+        } catch (Exception e) {
+            job.finished(IndexJob.Status.FAILED, e.getMessage());
+            System.err.println("Index job " + job.getId() + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cancel a queued or running job. A running rebuild stops at its next batch, and a running merge (a
+     * force-merge, or the final merge of a rebuild) is aborted; either way the index stays as it was before
+     * the job. Returns null for an unknown ID.
+     */
+    public IndexJob cancel(String jobId) throws Exception {
+        IndexJob job = getJob(jobId);
+        if (job == null || job.isFinished()) {
+            return job;
+        }
+        job.requestCancel();
+        if (job.getStatus() == IndexJob.Status.QUEUED && job.getFuture() != null && job.getFuture().cancel(false)) {
+            job.finished(IndexJob.Status.CANCELLED, null);
+        } else if (job.getStatus() == IndexJob.Status.RUNNING) {
+            luceneSearchService.cancelForceMerge();
+        }
+        return job;
+    }
+
+    public synchronized IndexJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * All retained jobs, newest first
+     */
+    public synchronized List<Map<String, Object>> getJobs() {
+        List<Map<String, Object>> snapshots = new ArrayList<>();
+        for (IndexJob job : jobs.values()) {
+            snapshots.add(job.snapshot());
+        }
+        Collections.reverse(snapshots);
+        return snapshots;
+    }
+
+    private synchronized boolean hasPendingJob(IndexJob.Type type) {
+        return jobs.values().stream().anyMatch(job -> job.getType() == type && !job.isFinished());
+    }
+
+    // Cron expressions default to "-", which disables the schedule; skipped while the startup import runs
+    // and on a node serving a read-only snapshot
+    @Scheduled(cron = "${search.index.jobs.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        if (csvImportService.getProgress().isReady() && !luceneSearchService.isReadOnly() && !hasPendingJob(IndexJob.Type.REBUILD)) {
+            System.out.println("Scheduled index rebuild submitted as " + submitRebuild("schedule").getId());
+        }
+    }
+
+    @Scheduled(cron = "${search.index.jobs.force-merge-cron:-}")
+    public void scheduledForceMerge() {
+        if (csvImportService.getProgress().isReady() && !luceneSearchService.isReadOnly() && !hasPendingJob(IndexJob.Type.FORCE_MERGE)) {
+            System.out.println("Scheduled force-merge submitted as " + submitForceMerge(scheduledMaxSegments, "schedule").getId());
+        }
+    }
+}
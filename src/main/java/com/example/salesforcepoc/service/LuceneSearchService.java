@@ -1,59 +1,542 @@
 package com.example.salesforcepoc.service;
 
 import com.example.salesforcepoc.entity.Product;
+import com.example.salesforcepoc.common.QueryProfileReport;
 import com.example.salesforcepoc.common.QueryResults;
 import com.example.salesforcepoc.common.BrandCategoryResults;
+import com.example.salesforcepoc.common.FieldDiskUsage;
+import com.example.salesforcepoc.common.FieldProjection;
+import com.example.salesforcepoc.common.Histogram;
+import com.example.salesforcepoc.common.IndexDurability;
+import com.example.salesforcepoc.common.IndexSnapshot;
+import com.example.salesforcepoc.common.IndexStorage;
+import com.example.salesforcepoc.common.ProductIndexSchema;
+import com.example.salesforcepoc.common.ProductQueryBuilder;
+import com.example.salesforcepoc.common.ProductRecordCodec;
+import com.example.salesforcepoc.common.StageTimer;
+import com.example.salesforcepoc.common.SupplierSearchRequest;
+import com.example.salesforcepoc.common.TimeBudget;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.codecs.lucene95.Lucene95Codec;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.StoredField;
-import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.sandbox.search.QueryProfilerIndexSearcher;
+import org.apache.lucene.sandbox.search.QueryProfilerResult;
 import org.apache.lucene.search.*;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.automaton.ByteRunAutomaton;
+import org.apache.lucene.index.Term;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class LuceneSearchService {
 
+    /**
+     * Receives one page of a streamed search: product IDs, plus the products built from stored fields
+     * when stored fields were requested (null otherwise)
+     */
+    @FunctionalInterface
+    public interface PageConsumer {
+        void accept(List<String> productIds, List<Product> storedProducts) throws IOException;
+    }
+
+    /**
+     * Source of the products for an index rebuild, handing each one to the indexer in turn
+     */
+    @FunctionalInterface
+    public interface ProductFeed {
+        void forEach(Consumer<Product> indexer) throws IOException;
+    }
+
     private static final String INDEX_DIRECTORY = "./lucene-index";
+    private static final Set<String> PRODUCT_ID_FIELD = Set.of("productId");
+    // Every field a product has, for reading whole products in the full layout
+    private static final Set<String> ALL_PRODUCT_FIELDS = Set.copyOf(FieldProjection.PRODUCT_FIELDS);
+    // Hits per warmup query, enough to touch the stored fields a typical response reads
+    private static final int WARMUP_HITS = 100;
     private StandardAnalyzer analyzer;
-    private FSDirectory indexDirectory;
-    private IndexWriter indexWriter;
+    private IndexStorage storage;
+    private boolean searchOnly;
+    // Serving a prebuilt snapshot: no writer, so the index never changes
+    private boolean readOnly;
+    private Map<String, Object> snapshotManifest = Map.of();
+    private boolean leanLayout;
+    private Lucene95Codec.Mode storedCompression;
+    private Directory indexDirectory;
+    // Replaced after a rollback, so read it fresh each time; null when serving a read-only snapshot
+    private volatile IndexWriter indexWriter;
+    // The writer's deletion policy, which lets a rebuild keep the commit it started from until it has committed
+    private SnapshotDeletionPolicy deletionPolicy;
+    // Shared point-in-time searcher, near-real-time over the writer: refreshed periodically for updates and
+    // after each rebuild, independently of commits. Replaced along with the writer after a rollback.
+    private volatile SearcherManager searcherManager;
+    private ThreadPoolExecutor batchExecutor;
+    private volatile long indexGeneration;
+    private volatile Map<String, Object> lastWarmup = Map.of();
+    private volatile long lastRefreshMillis;
+    // Bumped each time searches start seeing different index contents, after the new searcher is in place
+    private final AtomicLong searcherVersion = new AtomicLong();
+    private final List<Runnable> searcherListeners = new CopyOnWriteArrayList<>();
+    // Held by whatever is rewriting the index (rebuild, force-merge), so those run one at a time
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Guards closing and reopening the writer, so a cancelled merge only reopens it once the rollback is done
+    private final Object writerMonitor = new Object();
+    private volatile boolean forceMerging;
+    private volatile boolean forceMergeCancelled;
+    private IndexDurability durability;
+    // Runs the near-real-time refresher and the group committer
+    private ScheduledExecutorService indexMaintenance;
+    // Document writes since the last commit, and when the oldest of them was made (0 when there are none)
+    private final AtomicLong uncommittedDocs = new AtomicLong();
+    private volatile long uncommittedSince;
+    private volatile boolean rebuilding;
+    // Set when the next searcher replaces the whole index (startup, rebuild, force-merge), so it is warmed;
+    // the small changes of periodic refreshes are not worth a warmup
+    private volatile boolean warmNextSearcher = true;
+    // Shared by every searcher, as is the caching policy, whose usage tracking decides which filters are cached
+    private LRUQueryCache queryCache;
+    private final QueryCachingPolicy queryCachingPolicy = new UsageTrackingQueryCachingPolicy();
     
     @Autowired
     private ProductService productService;
+    
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+
+    // Default per-request time budget; 0 disables it
+    @Value("${search.time-budget-ms:2000}")
+    private long defaultTimeBudgetMs;
+
+    // Unscored supplier filters count their matches exactly up to this many, then stop counting
+    @Value("${search.total-hits-threshold:1000}")
+    private int totalHitsThreshold;
+
+    // Upper bound on the index terms a single fuzzy or wildcard clause may expand to
+    @Value("${search.max-term-expansions:50}")
+    private int maxTermExpansions;
+
+    // Filter terms shorter than this are matched exactly instead of as a prefix
+    @Value("${search.min-wildcard-term-length:1}")
+    private int minWildcardTermLength;
+
+    // Hits fetched and handed on per page when streaming a result set
+    @Value("${search.stream.page-size:500}")
+    private int streamPageSize;
+
+    // Threads running the entries of one batch search in parallel; 0 uses the number of CPUs
+    @Value("${search.batch.threads:0}")
+    private int batchThreads;
+
+    // mmap, heap or hybrid (see IndexStorage)
+    @Value("${search.index.storage:mmap}")
+    private String storageMode;
+
+    // Index file types loaded into memory when opened: terms index and dictionary, doc values
+    @Value("${search.index.preload-extensions:tip,tim,dvd}")
+    private String preloadExtensions;
+
+    // Heap for freshly flushed segments in hybrid mode
+    @Value("${search.index.hybrid-cache-mb:64}")
+    private double hybridCacheMb;
+
+    @Value("${search.warmup.enabled:true}")
+    private boolean warmupEnabled;
+
+    // Suppliers and brand terms replayed against each new searcher; when empty the most frequent ones in the index are used
+    @Value("${search.warmup.suppliers:}")
+    private String warmupSuppliers;
+
+    @Value("${search.warmup.brands:}")
+    private String warmupBrands;
+
+    @Value("${search.warmup.top-terms:20}")
+    private int warmupTopTerms;
+
+    // Background merge threads; 0 leaves Lucene's default, which scales with the CPU count
+    @Value("${search.index.merge-threads:0}")
+    private int mergeThreads;
+
+    // Write rate cap for force-merges so they don't saturate the disk under live traffic; 0 is unlimited
+    @Value("${search.index.force-merge-mb-per-sec:0}")
+    private double forceMergeMbPerSec;
+
+    // Sort each segment by supplier, then product ID: a supplier's products become one contiguous doc ID range
+    @Value("${search.index.sort:true}")
+    private boolean indexSortEnabled;
+
+    // Merge policy for a read-mostly catalogue: fewer, larger segments than Lucene's defaults
+    @Value("${search.index.merge.segments-per-tier:5}")
+    private double segmentsPerTier;
+
+    @Value("${search.index.merge.floor-segment-mb:16}")
+    private double floorSegmentMb;
+
+    @Value("${search.index.merge.max-merged-segment-mb:5120}")
+    private double maxMergedSegmentMb;
+
+    @Value("${search.index.merge.deletes-pct-allowed:20}")
+    private double deletesPctAllowed;
+
+    // lean: one compact stored record per product; full: every product field stored separately
+    @Value("${search.index.stored-layout:lean}")
+    private String storedLayout;
+
+    // Stored fields compression: best_speed (LZ4, faster retrieval) or best_compression (DEFLATE, smaller index)
+    @Value("${search.index.stored-compression:best_speed}")
+    private String storedCompressionMode;
+
+    // Segments a rebuild is merged down to before it is committed; 0 leaves what the merge policy produced
+    @Value("${search.index.rebuild-max-segments:1}")
+    private int rebuildMaxSegments;
+
+    @Value("${search.query-cache.enabled:true}")
+    private boolean queryCacheEnabled;
+
+    // Cached filters (per segment bitsets) are evicted least recently used beyond either bound
+    @Value("${search.query-cache.max-queries:1000}")
+    private int queryCacheMaxQueries;
+
+    @Value("${search.query-cache.max-ram-mb:64}")
+    private long queryCacheMaxRamMb;
+
+    // Smaller segments are cheap enough to filter directly and are never cached
+    @Value("${search.query-cache.min-segment-docs:1000}")
+    private int queryCacheMinSegmentDocs;
+
+    // full: the database holds the products and the index is built from it; search-only: the index is built
+    // straight from the CSV and is the only copy, so results are always read from its stored fields
+    @Value("${search.mode:full}")
+    private String mode;
+
+    // When writes are committed: on-completion, batch or group (see IndexDurability)
+    @Value("${search.index.durability.mode:on-completion}")
+    private String durabilityMode;
+
+    // Documents per commit in batch mode; rebuilds also report progress and check for cancellation this often
+    @Value("${search.index.durability.batch-docs:1000}")
+    private int commitBatchDocs;
+
+    // Group mode commits pending changes this long after the oldest of them, or once group-max-docs are pending
+    @Value("${search.index.durability.group-interval-ms:1000}")
+    private long groupCommitIntervalMs;
+
+    @Value("${search.index.durability.group-max-docs:10000}")
+    private long groupCommitMaxDocs;
+
+    // How soon updates become searchable, whatever the durability mode
+    @Value("${search.index.refresh-interval-ms:1000}")
+    private long refreshIntervalMs;
+
+    // Directory of an index snapshot built by IndexBuilderCli; when set it is served read-only instead of
+    // ./lucene-index, and imports and rebuilds leave the index alone
+    @Value("${search.index.snapshot:}")
+    private String snapshotPath;
 
     @PostConstruct
     public void init() throws IOException {
         analyzer = new StandardAnalyzer();
         Path indexPath = Paths.get(INDEX_DIRECTORY);
-        indexDirectory = FSDirectory.open(indexPath);
+        searchOnly = parseMode(mode);
+        storage = IndexStorage.parse(storageMode);
+        leanLayout = ProductIndexSchema.parseStoredLayout(storedLayout);
+        storedCompression = ProductIndexSchema.parseStoredCompression(storedCompressionMode);
+        durability = IndexDurability.parse(durabilityMode);
+        readOnly = !snapshotPath.isBlank();
+        if (readOnly) {
+            openSnapshot(Paths.get(snapshotPath));
+        } else {
+            indexDirectory = storage.open(indexPath, parseList(preloadExtensions), hybridCacheMb);
+        }
+        System.out.println("Lucene index storage: " + storage.name().toLowerCase() + " (" + indexDirectory + ")");
+        
+        if (queryCacheEnabled) {
+            // Lucene's default skip factor: a filter is not cached when it is 10x costlier than the clause leading the search
+            queryCache = new LRUQueryCache(queryCacheMaxQueries, queryCacheMaxRamMb * 1024 * 1024,
+                leaf -> leaf.reader().maxDoc() >= queryCacheMinSegmentDocs, 10f);
+        }
         
+        if (!readOnly) {
+            // The index sort of existing segments can't be changed; start over and let the import rebuild it
+            boolean recreate = indexSortEnabled && !existingIndexSorted();
+            if (recreate) {
+                System.out.println("Existing Lucene index is not sorted by " + ProductIndexSchema.INDEX_SORT + ", recreating it");
+            }
+            indexWriter = openWriter(recreate ? IndexWriterConfig.OpenMode.CREATE : IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            if (recreate || !DirectoryReader.indexExists(indexDirectory)) {
+                // The searcher manager needs a commit to open; start from an empty one
+                commitWithSchemaVersion();
+            }
+        }
+        searcherManager = openSearcherManager();
+        refreshIndexGeneration();
+        if (!readOnly) {
+            indexMaintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "lucene-index-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            indexMaintenance.scheduleWithFixedDelay(this::refreshSearcher, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+            if (durability == IndexDurability.GROUP) {
+                // Checked twice per interval, so a group waits at most half an interval past its deadline
+                long tick = Math.max(1, groupCommitIntervalMs / 2);
+                indexMaintenance.scheduleWithFixedDelay(this::groupCommit, tick, tick, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        int threads = batchThreads > 0 ? batchThreads : Runtime.getRuntime().availableProcessors();
+        // When the queue is full the submitting request runs the entry itself rather than failing
+        batchExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(256), runnable -> {
+                Thread thread = new Thread(runnable, "lucene-batch-search");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Open a snapshot built by IndexBuilderCli. Startup fails rather than serve a snapshot whose files don't
+     * match its manifest or that was written with another document layout; the snapshot's own stored
+     * layout and compression replace the configured ones.
+     */
+    private void openSnapshot(Path path) throws IOException {
+        snapshotManifest = IndexSnapshot.readManifest(path);
+        indexDirectory = storage.openSnapshot(path, parseList(preloadExtensions));
+        IndexSnapshot.verify(indexDirectory, snapshotManifest);
+        Map<String, String> userData = SegmentInfos.readLatestCommit(indexDirectory).getUserData();
+        if (!ProductIndexSchema.SCHEMA_VERSION.equals(userData.get(ProductIndexSchema.SCHEMA_VERSION_KEY))) {
+            throw new IllegalStateException("Index snapshot " + path + " has schema version "
+                + userData.get(ProductIndexSchema.SCHEMA_VERSION_KEY) + ", expected " + ProductIndexSchema.SCHEMA_VERSION);
+        }
+        // Always built sorted, so streamed results can follow the index order
+        indexSortEnabled = true;
+        if (!existingIndexSorted()) {
+            throw new IllegalStateException("Index snapshot " + path + " is not sorted by " + ProductIndexSchema.INDEX_SORT);
+        }
+        leanLayout = ProductIndexSchema.parseStoredLayout(userData.get(ProductIndexSchema.STORED_LAYOUT_KEY));
+        storedCompression = ProductIndexSchema.parseStoredCompression(String.valueOf(snapshotManifest.get("compression")));
+        System.out.println("Serving read-only index snapshot " + path + ": " + snapshotManifest.get("documents")
+            + " documents, fingerprint " + snapshotManifest.get("fingerprint"));
+    }
+
+    // Near-real-time over the writer; over the directory when there is no writer. The first searcher is warmed
+    // before it is handed out.
+    private SearcherManager openSearcherManager() throws IOException {
+        warmNextSearcher = true;
+        SearcherManager manager = readOnly
+            ? new SearcherManager(indexDirectory, new WarmingSearcherFactory())
+            : new SearcherManager(indexWriter, true, false, new WarmingSearcherFactory());
+        lastRefreshMillis = System.currentTimeMillis();
+        manager.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                if (didRefresh) {
+                    lastRefreshMillis = System.currentTimeMillis();
+                    searcherChanged();
+                }
+            }
+        });
+        return manager;
+    }
+
+    // Publishes updates to searchers. Skipped while a rebuild or force-merge holds the write lock: a rebuild's
+    // documents are published together once it has committed.
+    private void refreshSearcher() {
+        if (!writeLock.tryLock()) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException | AlreadyClosedException e) {
+            System.err.println("Searcher refresh failed: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void searcherChanged() {
+        searcherVersion.incrementAndGet();
+        for (Runnable listener : searcherListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                System.err.println("Searcher listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean existingIndexSorted() throws IOException {
+        if (!DirectoryReader.indexExists(indexDirectory)) {
+            return true;
+        }
+        for (SegmentCommitInfo segment : SegmentInfos.readLatestCommit(indexDirectory)) {
+            if (!Objects.equals(segment.info.getIndexSort(), ProductIndexSchema.INDEX_SORT)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IndexWriter openWriter() throws IOException {
+        return openWriter(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+    }
+
+    private IndexWriter openWriter(IndexWriterConfig.OpenMode openMode) throws IOException {
+        return openWriter(openMode, null);
+    }
+
+    // startingCommit, when not null, reopens the index at that commit; later commits are dropped at the next commit
+    private IndexWriter openWriter(IndexWriterConfig.OpenMode openMode, IndexCommit startingCommit) throws IOException {
         IndexWriterConfig config = new IndexWriterConfig(analyzer);
-        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-        indexWriter = new IndexWriter(indexDirectory, config);
+        config.setOpenMode(openMode);
+        deletionPolicy = new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy());
+        config.setIndexDeletionPolicy(deletionPolicy);
+        config.setIndexCommit(startingCommit);
+        if (indexSortEnabled) {
+            config.setIndexSort(ProductIndexSchema.INDEX_SORT);
+        }
+        // Applies to segments written from now on; a rebuild rewrites them all
+        config.setCodec(new Lucene95Codec(storedCompression));
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setSegmentsPerTier(segmentsPerTier);
+        mergePolicy.setFloorSegmentMB(floorSegmentMb);
+        mergePolicy.setMaxMergedSegmentMB(maxMergedSegmentMb);
+        mergePolicy.setDeletesPctAllowed(deletesPctAllowed);
+        config.setMergePolicy(mergePolicy);
+        // Merges keep Lucene's automatic I/O throttling; force-merges and merge threads can be capped on top
+        ConcurrentMergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+        if (mergeThreads > 0) {
+            mergeScheduler.setMaxMergesAndThreads(mergeThreads + 5, mergeThreads);
+        }
+        if (forceMergeMbPerSec > 0) {
+            mergeScheduler.setForceMergeMBPerSec(forceMergeMbPerSec);
+        }
+        config.setMergeScheduler(mergeScheduler);
+        return new IndexWriter(indexDirectory, config);
+    }
+
+    /**
+     * Discard everything written since the last commit and reopen the writer; searchers are unaffected
+     */
+    private void rollbackWriter() throws IOException {
+        rollbackWriter(null);
+    }
+
+    /**
+     * Discard everything written since the given commit, commits made after it included, reopen the writer on
+     * it and publish it to searchers. A null commit is the last one.
+     */
+    private void rollbackWriter(IndexCommit restore) throws IOException {
+        synchronized (writerMonitor) {
+            if (indexWriter.isOpen()) {
+                indexWriter.rollback();
+            }
+            boolean earlier = restore != null
+                && restore.getGeneration() != SegmentInfos.getLastCommitGeneration(indexDirectory);
+            indexWriter = earlier ? openWriter(IndexWriterConfig.OpenMode.APPEND, restore) : openWriter();
+            if (earlier) {
+                // Make it the latest commit again, so a restart doesn't find the discarded ones; the writer
+                // carries over the discarded commit's user data, so restore that too
+                indexWriter.setLiveCommitData(restore.getUserData().entrySet());
+                indexWriter.commit();
+                refreshIndexGeneration();
+            }
+            uncommittedDocs.set(0);
+            uncommittedSince = 0;
+            // The searcher manager reads through the writer it was opened with
+            SearcherManager previous = searcherManager;
+            searcherManager = openSearcherManager();
+            previous.close();
+            searcherChanged();
+        }
     }
 
     @PreDestroy
     public void cleanup() throws IOException {
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+        }
+        if (indexMaintenance != null) {
+            indexMaintenance.shutdownNow();
+        }
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
         if (indexWriter != null) {
-            indexWriter.close();
+            if (rebuilding) {
+                // Leave the last commit, rather than commit an unfinished rebuild on close
+                indexWriter.rollback();
+            } else {
+                commitPendingUpdates();
+                indexWriter.close();
+            }
         }
         if (indexDirectory != null) {
             indexDirectory.close();
@@ -67,142 +550,427 @@ public class LuceneSearchService {
      * Index all products in the database
      */
     public void indexAllProducts() throws IOException {
-        System.out.println("Starting to index all products...");
-        
-        // Clear existing index
-        indexWriter.deleteAll();
-        
-        List<Product> allProducts = productService.getAllProducts();
-        System.out.println("Found " + allProducts.size() + " products to index");
-        
-        int batchSize = 1000;
-        int count = 0;
-        
-        for (Product product : allProducts) {
-            indexProduct(product);
-            count++;
+        indexAllProducts(indexed -> { });
+    }
+
+    /**
+     * Index all products in the database, reporting the number indexed so far after each batch
+     */
+    public void indexAllProducts(LongConsumer progress) throws IOException {
+        indexAllProducts(progress, () -> false);
+    }
+
+    /**
+     * Rebuild the index from the database
+     *
+     * @see #rebuildIndex(ProductFeed, LongConsumer, BooleanSupplier)
+     */
+    public void indexAllProducts(LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        rebuildIndex(indexer -> {
+            List<Product> allProducts = productService.getAllProducts();
+            System.out.println("Found " + allProducts.size() + " products to index");
+            allProducts.forEach(indexer);
+        }, progress, cancelled);
+    }
+
+    /**
+     * Replace the index with the products of the feed. The rebuild is merged down to
+     * search.index.rebuild-max-segments and published to searchers once it has committed, at the end. In
+     * batch and group mode it also commits along the way, marked as a partial rebuild, so a crash loses little
+     * and startup replays the source; the commit it started from is kept until then. A cancelled or failed
+     * rebuild returns to that commit, both on disk and for searchers.
+     *
+     * @throws CancellationException if cancelled returned true (checked after each batch), or if
+     *                               {@link #cancelForceMerge()} aborted the final merge
+     */
+    public void rebuildIndex(ProductFeed feed, LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        requireWritable();
+        writeLock.lock();
+        try {
+            forceMergeCancelled = false;
+            System.out.println("Starting to index all products...");
+            StageTimer timer = new StageTimer();
+            rebuilding = true;
+            AtomicLong count = new AtomicLong();
+            AtomicLong committed = new AtomicLong();
+            // Acknowledged group updates go into the commit a failed rebuild returns to
+            commitPendingUpdates();
+            IndexCommit previousIndex = deletionPolicy.snapshot();
             
-            if (count % batchSize == 0) {
-                indexWriter.commit();
-                System.out.println("Indexed " + count + " products...");
+            try {
+                // Any commit before the final one, in batch or group mode, marks the index as a partial rebuild
+                setLiveCommitData(Map.of(ProductIndexSchema.INDEX_STATE_KEY, ProductIndexSchema.STATE_REBUILDING));
+                // Clear existing index
+                indexWriter.deleteAll();
+                
+                feed.forEach(product -> {
+                    try {
+                        indexProduct(product);
+                        long indexed = count.incrementAndGet();
+                        
+                        if (indexed % commitBatchDocs == 0) {
+                            progress.accept(indexed);
+                            if (cancelled.getAsBoolean()) {
+                                throw new CancellationException("Rebuild cancelled after " + indexed + " products");
+                            }
+                            if (commitDue()) {
+                                commit(Map.of());
+                                committed.set(indexed);
+                            }
+                            System.out.println("Indexed " + indexed + " products...");
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                
+                timer.mark("index");
+                if (rebuildMaxSegments > 0) {
+                    // Merged before the commit, so searchers go straight from the old index to the merged one
+                    mergeDown(rebuildMaxSegments);
+                    timer.mark("merge");
+                }
+                commitWithSchemaVersion();
+            } catch (IOException | RuntimeException e) {
+                rebuilding = false;
+                rollbackWriter(previousIndex);
+                System.out.println("Index rebuild rolled back to the previous index: " + e.getMessage()
+                    + (committed.get() > 0 ? " (" + committed.get() + " products it had committed discarded)" : ""));
+                if (forceMergeCancelled && !(e instanceof CancellationException)) {
+                    throw new CancellationException("Rebuild cancelled while merging");
+                }
+                if (e instanceof UncheckedIOException unchecked) {
+                    throw unchecked.getCause();
+                }
+                throw e;
             }
+            rebuilding = false;
+            deletionPolicy.release(previousIndex);
+            indexWriter.deleteUnusedFiles();
+            // Searches keep using the previous complete index until the rebuild has committed
+            warmNextSearcher = true;
+            searcherManager.maybeRefreshBlocking();
+            timer.mark("commit");
+            progress.accept(count.get());
+            searchMetricsService.record("indexRebuild", timer, count.get());
+            System.out.println("Indexing completed. Total products indexed: " + count.get());
+        } finally {
+            rebuilding = false;
+            writeLock.unlock();
         }
-        
+    }
+
+    /**
+     * Merge the index down to at most maxSegments segments, commit and publish it. Fewer segments means
+     * fewer term dictionaries to visit per query; the merge rewrites the whole index, so it is I/O heavy.
+     *
+     * @throws CancellationException if {@link #cancelForceMerge()} aborted it; the index is left as it was,
+     *                               with any pending group updates committed
+     */
+    public void forceMerge(int maxSegments) throws IOException {
+        requireWritable();
+        writeLock.lock();
+        try {
+            StageTimer timer = new StageTimer();
+            // A cancelled merge rolls the writer back; commit acknowledged updates first so they survive it
+            commitPendingUpdates();
+            try {
+                mergeDown(maxSegments);
+                timer.mark("merge");
+                commitPending();
+            } catch (IOException | AlreadyClosedException e) {
+                if (!forceMergeCancelled) {
+                    throw e;
+                }
+                rollbackWriter();
+                throw new CancellationException("Force-merge cancelled");
+            }
+            warmNextSearcher = true;
+            searcherManager.maybeRefreshBlocking();
+            timer.mark("commit");
+            searchMetricsService.record("forceMerge", timer, getSegmentCount());
+            System.out.println("Force-merge to " + maxSegments + " segment(s) completed in " + timer.getElapsedMillis() + "ms");
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Flagged as running while it merges, so cancelForceMerge() can abort it
+    private void mergeDown(int maxSegments) throws IOException {
+        forceMergeCancelled = false;
+        forceMerging = true;
+        try {
+            indexWriter.forceMerge(Math.max(1, maxSegments));
+        } finally {
+            forceMerging = false;
+        }
+    }
+
+    /**
+     * Abort a running force-merge, or the final merge of a rebuild, by rolling the writer back; returns
+     * false if no merge is running
+     */
+    public boolean cancelForceMerge() throws IOException {
+        if (!forceMerging) {
+            return false;
+        }
+        synchronized (writerMonitor) {
+            forceMergeCancelled = true;
+            indexWriter.rollback();
+        }
+        return true;
+    }
+
+    // Only a full rebuild writes the current document layout, so only it stamps the schema version
+    private void commitWithSchemaVersion() throws IOException {
+        commit(ProductIndexSchema.schemaUserData(leanLayout));
+    }
+
+    // Keeps the previous commit's user data (the writer carries it over), updating the given keys and the
+    // commit time. Callers hold the write lock.
+    private void commit(Map<String, String> userData) throws IOException {
+        StageTimer timer = new StageTimer();
+        long docs = uncommittedDocs.get();
+        Map<String, String> commitData = new HashMap<>(userData);
+        commitData.put(ProductIndexSchema.COMMITTED_AT_KEY, String.valueOf(System.currentTimeMillis()));
+        setLiveCommitData(commitData);
         indexWriter.commit();
-        System.out.println("Indexing completed. Total products indexed: " + count);
+        uncommittedDocs.set(0);
+        uncommittedSince = 0;
+        refreshIndexGeneration();
+        timer.mark("commit");
+        searchMetricsService.record("indexCommit", timer, docs);
+    }
+
+    // Updates the given keys of the user data the next commit records, keeping the others
+    private void setLiveCommitData(Map<String, String> userData) {
+        Map<String, String> commitData = new HashMap<>();
+        Iterable<Map.Entry<String, String>> previous = indexWriter.getLiveCommitData();
+        if (previous != null) {
+            previous.forEach(entry -> commitData.put(entry.getKey(), entry.getValue()));
+        }
+        commitData.putAll(userData);
+        indexWriter.setLiveCommitData(commitData.entrySet());
+    }
+
+    // Commit every change made so far; the index then holds everything that was acknowledged
+    private void commitPending() throws IOException {
+        commit(Map.of(ProductIndexSchema.INDEX_STATE_KEY, ProductIndexSchema.STATE_COMPLETE));
+    }
+
+    // Before anything that may roll the writer back: group mode acknowledges updates it has not committed yet
+    private void commitPendingUpdates() throws IOException {
+        if (uncommittedDocs.get() > 0) {
+            commitPending();
+        }
+    }
+
+    // Whether the changes written so far should be committed now rather than later
+    private boolean commitDue() {
+        switch (durability) {
+            case BATCH:
+                return true;
+            case GROUP:
+                long since = uncommittedSince;
+                return uncommittedDocs.get() >= groupCommitMaxDocs
+                    || (since > 0 && System.currentTimeMillis() - since >= groupCommitIntervalMs);
+            default:
+                return false;
+        }
+    }
+
+    // Group mode: commit the updates pending since the last commit, unless a rebuild or force-merge is
+    // writing (a rebuild commits its own groups)
+    private void groupCommit() {
+        if (uncommittedDocs.get() == 0 || !commitDue() || !writeLock.tryLock()) {
+            return;
+        }
+        try {
+            if (uncommittedDocs.get() > 0) {
+                commitPending();
+            }
+        } catch (IOException | AlreadyClosedException e) {
+            System.err.println("Group commit failed: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void noteWrite() {
+        if (uncommittedDocs.getAndIncrement() == 0) {
+            uncommittedSince = System.currentTimeMillis();
+        }
+    }
+
+    private static boolean parseMode(String mode) {
+        switch (mode.trim().toLowerCase()) {
+            case "search-only":
+                return true;
+            case "full":
+                return false;
+            default:
+                throw new IllegalArgumentException("Unknown search mode '" + mode + "', expected full or search-only");
+        }
+    }
+
+    /**
+     * Whether this node serves a prebuilt snapshot (search.index.snapshot) that it cannot modify
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * The snapshot's manifest, empty unless {@link #isReadOnly()}
+     */
+    public Map<String, Object> getSnapshotManifest() {
+        return snapshotManifest;
+    }
+
+    private void requireWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("The index is a read-only snapshot; rebuild it with IndexBuilderCli");
+        }
     }
 
     /**
-     * Index a single product - optimized for supplier-based searches with brand and description support
+     * Whether this node runs without product data in the database (search.mode=search-only)
+     */
+    public boolean isSearchOnly() {
+        return searchOnly;
+    }
+
+    /**
+     * Whether the last commit holds a complete index written with the current document layout; false for an
+     * index built by an older version, which lacks fields the queries rely on, or with the other stored
+     * layout, and for one a crash left partial or behind its source
+     */
+    public boolean isSchemaCurrent() throws IOException {
+        Map<String, String> userData = SegmentInfos.readLatestCommit(indexDirectory).getUserData();
+        return ProductIndexSchema.isCurrent(userData, leanLayout);
+    }
+
+    /**
+     * Segments in the current searcher
+     */
+    public int getSegmentCount() throws IOException {
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            return shared.getIndexReader().leaves().size();
+        } finally {
+            searcherManager.release(shared);
+        }
+    }
+
+    /**
+     * Index a single product; the document layout is {@link ProductIndexSchema#toDocument}
      */
     public void indexProduct(Product product) throws IOException {
-        Document doc = new Document();
-        
-        // Store the product ID for retrieval
-        doc.add(new StoredField("productId", product.getProductId()));
-        
-        // Primary index field: supplier (this is our main search target)
-        String supplierId = product.getSupplier() != null ? product.getSupplier() : "";
-        doc.add(new TextField("supplier", supplierId, Field.Store.YES));
-        
-        // Secondary searchable fields for fuzzy search
-        String itemDescription = product.getItemDescription() != null ? product.getItemDescription() : "";
-        String digitalBrandName = product.getDigitalBrandName() != null ? product.getDigitalBrandName() : "";
-        String subBrandName = product.getSubBrandName() != null ? product.getSubBrandName() : "";
-        
-        doc.add(new TextField("itemDescription", itemDescription, Field.Store.YES));
-        doc.add(new TextField("digitalBrandName", digitalBrandName, Field.Store.YES));
-        doc.add(new TextField("subBrandName", subBrandName, Field.Store.YES));
-        
-        // Combined brand field for easier searching
-        String combinedBrand = String.join(" ", digitalBrandName, subBrandName).trim();
-        doc.add(new TextField("brand", combinedBrand, Field.Store.YES));
-        
-        // Store other essential fields for retrieval but don't heavily index them
-        doc.add(new StoredField("supplierGroupId", product.getSupplierGroupId() != null ? product.getSupplierGroupId() : ""));
-        doc.add(new StoredField("smktsMerchCategory", product.getSmktsMerchCategory() != null ? product.getSmktsMerchCategory() : ""));
-        doc.add(new StoredField("liqMerchCategory", product.getLiqMerchCategory() != null ? product.getLiqMerchCategory() : ""));
-        
-        // Secondary searchable fields (lighter indexing)
-        doc.add(new TextField("productId", product.getProductId(), Field.Store.YES));
-        
-        // Create a supplier-focused combined field for multi-supplier searches
-        String supplierText = String.join(" ", 
-            supplierId,
-            product.getSupplierGroupId() != null ? product.getSupplierGroupId() : ""
-        );
-        doc.add(new TextField("supplierSearch", supplierText, Field.Store.NO));
-        
-        indexWriter.addDocument(doc);
+        requireWritable();
+        indexWriter.addDocument(ProductIndexSchema.toDocument(product, leanLayout));
+        noteWrite();
+    }
+
+    /**
+     * Replace the documents of the given products and delete those of deletedIds. The changes are committed
+     * as search.index.durability.mode says and become searchable within search.index.refresh-interval-ms.
+     * Waits for a running rebuild or force-merge to finish.
+     */
+    public void updateProducts(Collection<Product> products, Collection<String> deletedIds) throws IOException {
+        requireWritable();
+        writeLock.lock();
+        try {
+            if (durability == IndexDurability.GROUP && uncommittedDocs.get() == 0) {
+                // These changes are acknowledged before they are committed; record that durably first, so a
+                // crash before the next group commit is detected at startup and the source replayed
+                commit(Map.of(ProductIndexSchema.INDEX_STATE_KEY, ProductIndexSchema.STATE_UPDATING));
+            }
+            for (Product product : products) {
+                indexWriter.updateDocument(ProductIndexSchema.productKey(product.getProductId()),
+                    ProductIndexSchema.toDocument(product, leanLayout));
+                noteWrite();
+                if (durability == IndexDurability.BATCH && uncommittedDocs.get() >= commitBatchDocs) {
+                    commitPending();
+                }
+            }
+            for (String productId : deletedIds) {
+                indexWriter.deleteDocuments(ProductIndexSchema.productKey(productId));
+                noteWrite();
+            }
+            if (durability != IndexDurability.GROUP || commitDue()) {
+                commitPending();
+            }
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     /**
      * Search products using Lucene - optimized for supplier searches
      */
     public List<String> searchProducts(String searchText, int maxResults) throws Exception {
+        return searchProducts(searchText, maxResults, new StageTimer(), createTimeBudget(null), null).getProductIds();
+    }
+
+    /**
+     * Supplier-field search under a time budget. storedFields, when not null, also builds the products
+     * from those stored fields so the caller can skip database hydration.
+     */
+    public QueryResults searchProducts(String searchText, int maxResults, StageTimer timer,
+                                       TimeBudget budget, Set<String> storedFields) throws Exception {
         if (searchText == null || searchText.trim().isEmpty()) {
-            return new ArrayList<>();
+            return new QueryResults(new ArrayList<>(), 0);
         }
 
-        IndexReader reader = DirectoryReader.open(indexDirectory);
-        IndexSearcher searcher = new IndexSearcher(reader);
-        
-        // Default search focuses on supplier field
-        QueryParser parser = new QueryParser("supplier", analyzer);
-        Query query = parser.parse(searchText.trim());
-        
-        TopDocs results = searcher.search(query, maxResults);
-        List<String> productIds = new ArrayList<>();
-        
-        for (ScoreDoc scoreDoc : results.scoreDocs) {
-            Document doc = searcher.doc(scoreDoc.doc);
-            productIds.add(doc.get("productId"));
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            IndexSearcher searcher = newSearcher(shared.getIndexReader(), budget);
+            timer.mark("open");
+            
+            // Default search focuses on supplier field
+            Query query = parseQuery("supplier", searchText);
+            timer.mark("parse");
+            
+            TopDocs results = searcher.search(query, maxResults);
+            timer.mark("search");
+            QueryResults queryResults = loadResults(searcher, results, (int) results.totalHits.value, budget, storedFields);
+            timer.mark("load");
+            return queryResults;
+        } finally {
+            searcherManager.release(shared);
         }
-        
-        reader.close();
-        return productIds;
     }
 
     /**
      * Search products by supplier ID(s) - highly optimized
      */
     public List<String> searchProductsBySupplier(String supplierIds, int maxResults) throws Exception {
+        return searchProductsBySupplier(supplierIds, maxResults, new StageTimer(), createTimeBudget(null), null)
+            .getProductIds();
+    }
+
+    public QueryResults searchProductsBySupplier(String supplierIds, int maxResults, StageTimer timer,
+                                                 TimeBudget budget, Set<String> storedFields) throws Exception {
         if (supplierIds == null || supplierIds.trim().isEmpty()) {
-            return new ArrayList<>();
+            return new QueryResults(new ArrayList<>(), 0);
         }
 
-        IndexReader reader = DirectoryReader.open(indexDirectory);
-        IndexSearcher searcher = new IndexSearcher(reader);
-        
-        // For multiple supplier IDs, create an OR query
-        String queryString;
-        if (supplierIds.contains(",")) {
-            // Multiple suppliers: "supplier1 OR supplier2 OR supplier3"
-            String[] suppliers = supplierIds.split(",");
-            StringBuilder queryBuilder = new StringBuilder();
-            for (int i = 0; i < suppliers.length; i++) {
-                if (i > 0) queryBuilder.append(" OR ");
-                queryBuilder.append(suppliers[i].trim());
-            }
-            queryString = queryBuilder.toString();
-        } else {
-            // Single supplier
-            queryString = supplierIds.trim();
-        }
-        
-        QueryParser parser = new QueryParser("supplier", analyzer);
-        Query query = parser.parse(queryString);
-        
-        TopDocs results = searcher.search(query, maxResults);
-        List<String> productIds = new ArrayList<>();
-        
-        for (ScoreDoc scoreDoc : results.scoreDocs) {
-            Document doc = searcher.doc(scoreDoc.doc);
-            productIds.add(doc.get("productId"));
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            IndexSearcher searcher = newSearcher(shared.getIndexReader(), budget);
+            timer.mark("open");
+            
+            Query query = buildSupplierQuery(supplierIds);
+            timer.mark("parse");
+            
+            TopDocs results = searcher.search(query, maxResults, resultOrder(), false);
+            timer.mark("search");
+            QueryResults queryResults = loadResults(searcher, results, (int) results.totalHits.value, budget, storedFields);
+            timer.mark("load");
+            return queryResults;
+        } finally {
+            searcherManager.release(shared);
         }
-        
-        reader.close();
-        return productIds;
     }
 
     /**
@@ -210,122 +978,834 @@ public class LuceneSearchService {
      */
     public QueryResults searchProductsBySupplierWithFilters(String supplierIds, String brandSearch, 
                                                            String itemDescriptionSearch, int maxResults) throws Exception {
-        if (supplierIds == null || supplierIds.trim().isEmpty()) {
+        return searchProductsBySupplierWithFilters(supplierIds, brandSearch, itemDescriptionSearch, maxResults,
+            new StageTimer(), createTimeBudget(null), null);
+    }
+
+    /**
+     * Filtered supplier search bounded by a time budget: collection stops when the budget expires and
+     * the results are flagged partial. storedFields, when not null, also builds the products from the index.
+     */
+    public QueryResults searchProductsBySupplierWithFilters(String supplierIds, String brandSearch, 
+                                                           String itemDescriptionSearch, int maxResults,
+                                                           StageTimer timer, TimeBudget budget,
+                                                           Set<String> storedFields) throws Exception {
+        SupplierSearchRequest request = new SupplierSearchRequest();
+        request.setSupplierIds(supplierIds);
+        request.setBrandSearch(brandSearch);
+        request.setItemDescriptionSearch(itemDescriptionSearch);
+        request.setLimit(maxResults);
+        return searchProductsBySupplierWithFilters(request, timer, budget, storedFields);
+    }
+
+    /**
+     * Filtered supplier search for one request, including its optional supplier group and category filters
+     */
+    public QueryResults searchProductsBySupplierWithFilters(SupplierSearchRequest request, StageTimer timer,
+                                                           TimeBudget budget, Set<String> storedFields) throws Exception {
+        if (request.getSupplierIds() == null || request.getSupplierIds().trim().isEmpty()) {
             return new QueryResults(
                 new ArrayList<>(),
                 0
             );
         }
 
-        IndexReader reader = DirectoryReader.open(indexDirectory);
-        IndexSearcher searcher = new IndexSearcher(reader);
-        
-        BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
-        
-        // Add supplier query (required)
-        QueryParser supplierParser = new QueryParser("supplier", analyzer);
-        String supplierQueryString;
-        if (supplierIds.contains(",")) {
-            // Multiple suppliers: "supplier1 OR supplier2 OR supplier3"
-            String[] suppliers = supplierIds.split(",");
-            StringBuilder supplierQueryBuilder = new StringBuilder();
-            for (int i = 0; i < suppliers.length; i++) {
-                if (i > 0) supplierQueryBuilder.append(" OR ");
-                supplierQueryBuilder.append("\"").append(suppliers[i].trim()).append("\"");
-            }
-            supplierQueryString = supplierQueryBuilder.toString();
-        } else {
-            // Single supplier
-            supplierQueryString = "\"" + supplierIds.trim() + "\"";
-        }
-        Query supplierQuery = supplierParser.parse(supplierQueryString);
-        queryBuilder.add(supplierQuery, BooleanClause.Occur.MUST);
-        
-        // Add brand search if provided
-        if (brandSearch != null && !brandSearch.trim().isEmpty()) {
-            QueryParser brandParser = new QueryParser("brand", analyzer);
-            // Create fuzzy query for brand search
-            String fuzzyBrandQuery = createFuzzyQuery(brandSearch.trim());
-            Query brandQuery = brandParser.parse(fuzzyBrandQuery);
-            queryBuilder.add(brandQuery, BooleanClause.Occur.MUST);
-        }
-        
-        // Add item description search if provided (fuzzy search)
-        if (itemDescriptionSearch != null && !itemDescriptionSearch.trim().isEmpty()) {
-            QueryParser descParser = new QueryParser("itemDescription", analyzer);
-            // Create fuzzy query for item description
-            String fuzzyDescQuery = createFuzzyQuery(itemDescriptionSearch.trim());
-            Query descQuery = descParser.parse(fuzzyDescQuery);
-            queryBuilder.add(descQuery, BooleanClause.Occur.MUST);
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            IndexSearcher searcher = newSearcher(shared.getIndexReader(), budget);
+            timer.mark("open");
+            
+            Query finalQuery = buildSupplierFilterQuery(request);
+            int maxResults = request.getLimit();
+            timer.mark("parse");
+            QueryResults queryResults = executeSupplierFilterQuery(searcher, finalQuery, maxResults, timer, budget,
+                storedFields);
+            return queryResults;
+        } finally {
+            searcherManager.release(shared);
         }
-        
-        BooleanQuery finalQuery = queryBuilder.build();
-        Integer matchingResultsCount = searcher.count(finalQuery);
-        TopDocs results = searcher.search(finalQuery, maxResults);
-        List<String> productIds = new ArrayList<>();
-        
-        for (ScoreDoc scoreDoc : results.scoreDocs) {
-            Document doc = searcher.doc(scoreDoc.doc);
-            productIds.add(doc.get("productId"));
+    }
+
+    /**
+     * Without brand or item description text every match scores the same, so the hits are taken in
+     * {@link #resultOrder()} and counted only up to search.total-hits-threshold: past it a sorted index lets
+     * each segment stop collecting, and the count is returned as a lower bound. Scored queries are ranked by
+     * score and counted exactly.
+     */
+    private QueryResults executeSupplierFilterQuery(IndexSearcher searcher, Query finalQuery, int maxResults,
+                                                    StageTimer timer, TimeBudget budget,
+                                                    Set<String> storedFields) throws IOException {
+        if (isUnscored(finalQuery)) {
+            int numHits = Math.max(1, Math.min(maxResults, searcher.getIndexReader().maxDoc()));
+            TopFieldDocs results = searcher.search(finalQuery, TopFieldCollector.createSharedManager(
+                resultOrder(), numHits, null, Math.max(numHits, totalHitsThreshold)));
+            timer.mark("search");
+            QueryResults queryResults = loadResults(searcher, results, (int) results.totalHits.value, budget,
+                storedFields);
+            timer.mark("load");
+            return results.totalHits.relation == TotalHits.Relation.EQUAL_TO
+                ? queryResults : queryResults.withCountLowerBound();
         }
-        
-        reader.close();
 
-        QueryResults queryResults = new QueryResults(productIds, matchingResultsCount);
+        int matchingResultsCount = searcher.count(finalQuery);
+        timer.mark("count");
+        TopDocs results = searcher.search(finalQuery, maxResults);
+        timer.mark("search");
+        QueryResults queryResults = loadResults(searcher, results, matchingResultsCount, budget, storedFields);
+        timer.mark("load");
         return queryResults;
     }
 
     /**
-     * Create a fuzzy query string for better matching
+     * Run many filtered supplier searches against one searcher snapshot, in parallel on the batch
+     * executor. Results come back in request order; an entry that fails gets an error result instead
+     * of failing the whole batch. Per-entry stage times are not split out: the timer gets one "search" mark.
      */
-    private String createFuzzyQuery(String searchText) {
-        String[] terms = searchText.split("\\s+");
-        StringBuilder fuzzyQuery = new StringBuilder();
-        
-        for (int i = 0; i < terms.length; i++) {
-            if (i > 0) fuzzyQuery.append(" AND ");
-            String term = terms[i].trim();
-            if (term.length() > 4) {
-                // Use fuzzy search for longer terms with edit distance of 2
-                fuzzyQuery.append("(").append(term).append("~2 OR ").append(term).append("*)");
-            } else {
-                // Use wildcard for shorter terms
-                fuzzyQuery.append(term).append("*");
+    public List<QueryResults> searchProductsBySupplierBatch(List<SupplierSearchRequest> requests, StageTimer timer,
+                                                            TimeBudget budget, Set<String> storedFields) throws Exception {
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            timer.mark("open");
+            List<Future<QueryResults>> futures = new ArrayList<>();
+            for (SupplierSearchRequest request : requests) {
+                futures.add(batchExecutor.submit(() -> {
+                    if (request.getSupplierIds() == null || request.getSupplierIds().trim().isEmpty()) {
+                        return new QueryResults(new ArrayList<>(), 0, false, List.of());
+                    }
+                    IndexSearcher searcher = newSearcher(shared.getIndexReader(), budget);
+                    Query query = buildSupplierFilterQuery(request);
+                    return executeSupplierFilterQuery(searcher, query, request.getLimit(), new StageTimer(), budget,
+                        storedFields);
+                }));
             }
+
+            List<QueryResults> results = new ArrayList<>();
+            for (Future<QueryResults> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    results.add(QueryResults.failed(e.getCause().getMessage()));
+                }
+            }
+            timer.mark("search");
+            return results;
+        } finally {
+            // Every entry has completed (future.get above), so the snapshot is no longer in use
+            searcherManager.release(shared);
         }
-        
-        return fuzzyQuery.toString();
     }
+
+    // Filter clauses only: the supplier, supplier group and category filters
+    private static boolean isUnscored(Query query) {
+        return query instanceof BooleanQuery booleanQuery
+            && booleanQuery.clauses().stream().noneMatch(BooleanClause::isScoring);
+    }
+
+    /**
+     * Order for unscored supplier results: by supplier and product ID when the index is sorted that way,
+     * so each segment stops collecting once it has enough hits (they are its first ones for the supplier),
+     * otherwise plain index order
+     */
+    private Sort resultOrder() {
+        return indexSortEnabled ? ProductIndexSchema.INDEX_SORT : Sort.INDEXORDER;
+    }
+
+    /**
+     * Budget for one request: the requested milliseconds if given, otherwise search.time-budget-ms
+     */
+    public TimeBudget createTimeBudget(Long requestedMillis) {
+        return TimeBudget.ofMillis(requestedMillis != null ? requestedMillis : defaultTimeBudgetMs);
+    }
+
+    /**
+     * Per-request searcher over the shared reader (cheap to create), whose collection phase gives up
+     * (returning what it has) once the budget expires
+     */
+    private IndexSearcher newSearcher(IndexReader reader, TimeBudget budget) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        useQueryCache(searcher);
+        if (budget.isLimited()) {
+            searcher.setTimeout(budget);
+        }
+        return searcher;
+    }
+
+    private void useQueryCache(IndexSearcher searcher) {
+        searcher.setQueryCache(queryCache);
+        searcher.setQueryCachingPolicy(queryCachingPolicy);
+    }
+
+    /**
+     * Builder for a product query, with this service's term expansion limits
+     */
+    public ProductQueryBuilder newQueryBuilder() {
+        return new ProductQueryBuilder(analyzer, maxTermExpansions, minWildcardTermLength);
+    }
+
+    /**
+     * Query parser whose fuzzy and wildcard clauses expand to at most search.max-term-expansions terms
+     */
+    private QueryParser newQueryParser(String fieldName) {
+        QueryParser parser = new QueryParser(fieldName, analyzer) {
+            @Override
+            protected Query newFuzzyQuery(Term term, float minimumSimilarity, int prefixLength) {
+                String text = term.text();
+                int numEdits = FuzzyQuery.floatToEdits(minimumSimilarity, text.codePointCount(0, text.length()));
+                return new FuzzyQuery(term, numEdits, prefixLength, maxTermExpansions, FuzzyQuery.defaultTranspositions);
+            }
+        };
+        parser.setMultiTermRewriteMethod(new MultiTermQuery.TopTermsBlendedFreqScoringRewrite(maxTermExpansions));
+        return parser;
+    }
+
+    /**
+     * Parse a classic Lucene query string against a default field
+     */
+    public Query parseQuery(String fieldName, String searchText) throws ParseException {
+        QueryParser parser = newQueryParser(fieldName);
+        return parser.parse(searchText.trim());
+    }
+
+    /**
+     * Filter on one or more comma-separated supplier IDs; every match scores the same
+     */
+    public Query buildSupplierQuery(String supplierIds) {
+        return new ConstantScoreQuery(newQueryBuilder().suppliers(supplierIds).build());
+    }
+
+    /**
+     * Build the supplier filter combined with the optional fuzzy brand and item description clauses
+     */
+    public Query buildSupplierFilterQuery(String supplierIds, String brandSearch, String itemDescriptionSearch) {
+        return newQueryBuilder()
+            .suppliers(supplierIds)
+            .brand(brandSearch)
+            .itemDescription(itemDescriptionSearch)
+            .build();
+    }
+
+    /**
+     * The query for one filtered supplier search, including its supplier group and category filters
+     */
+    public Query buildSupplierFilterQuery(SupplierSearchRequest request) {
+        return newQueryBuilder()
+            .suppliers(request.getSupplierIds())
+            .supplierGroups(request.getSupplierGroupIds())
+            .categories(request.getCategories())
+            .brand(request.getBrandSearch())
+            .itemDescription(request.getItemDescriptionSearch())
+            .build();
+    }
+
     public List<String> searchProductsByField(String fieldName, String searchText, int maxResults) throws Exception {
+        return searchProductsByField(fieldName, searchText, maxResults, new StageTimer(), createTimeBudget(null), null)
+            .getProductIds();
+    }
+
+    public QueryResults searchProductsByField(String fieldName, String searchText, int maxResults, StageTimer timer,
+                                              TimeBudget budget, Set<String> storedFields) throws Exception {
         if (searchText == null || searchText.trim().isEmpty()) {
-            return new ArrayList<>();
+            return new QueryResults(new ArrayList<>(), 0);
         }
 
-        IndexReader reader = DirectoryReader.open(indexDirectory);
-        IndexSearcher searcher = new IndexSearcher(reader);
-        
-        QueryParser parser = new QueryParser(fieldName, analyzer);
-        Query query = parser.parse(searchText.trim());
-        
-        TopDocs results = searcher.search(query, maxResults);
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            IndexSearcher searcher = newSearcher(shared.getIndexReader(), budget);
+            timer.mark("open");
+            
+            Query query = parseQuery(fieldName, searchText);
+            timer.mark("parse");
+            
+            TopDocs results = searcher.search(query, maxResults);
+            timer.mark("search");
+            QueryResults queryResults = loadResults(searcher, results, (int) results.totalHits.value, budget, storedFields);
+            timer.mark("load");
+            return queryResults;
+        } finally {
+            searcherManager.release(shared);
+        }
+    }
+
+    /**
+     * Read the stored productId of every hit, stopping early if the time budget runs out. With storedFields,
+     * those fields are read too and turned into (unmanaged) products; a search-only node always reads them all.
+     */
+    private QueryResults loadResults(IndexSearcher searcher, TopDocs results, int matchingResultsCount,
+                                     TimeBudget budget, Set<String> requestedFields) throws IOException {
+        Set<String> storedFields = storedFieldsFor(requestedFields);
         List<String> productIds = new ArrayList<>();
+        List<Product> products = storedFields != null ? new ArrayList<>() : null;
+        Set<String> fieldsToLoad = storedFields != null ? storedFields : PRODUCT_ID_FIELD;
+        StoredFields documents = searcher.storedFields();
         
         for (ScoreDoc scoreDoc : results.scoreDocs) {
-            Document doc = searcher.doc(scoreDoc.doc);
-            productIds.add(doc.get("productId"));
+            if (budget.isExpired()) {
+                break;
+            }
+            Product product = readStoredProduct(documents, scoreDoc.doc, fieldsToLoad);
+            productIds.add(product.getProductId());
+            if (products != null) {
+                products.add(product);
+            }
         }
         
-        reader.close();
-        return productIds;
+        return new QueryResults(productIds, matchingResultsCount, budget.isExceeded(), products);
+    }
+
+    // Without a database to hydrate from, a search-only node builds every product from the index
+    private Set<String> storedFieldsFor(Set<String> requestedFields) {
+        return requestedFields == null && searchOnly ? FieldProjection.INDEX_STORED_FIELDS : requestedFields;
     }
 
     /**
-     * Get index statistics
+     * Product read from the index: decoded from its record in the lean layout (all fields, whatever was asked
+     * for), otherwise built from the requested stored fields
      */
-    public String getIndexStats() throws IOException {
-        IndexReader reader = DirectoryReader.open(indexDirectory);
-        int numDocs = reader.numDocs();
-        reader.close();
-        return "Lucene index contains " + numDocs + " documents";
+    private Product readStoredProduct(StoredFields documents, int docId, Set<String> fieldsToLoad) throws IOException {
+        if (leanLayout) {
+            ProductRecordVisitor visitor = new ProductRecordVisitor();
+            documents.document(docId, visitor);
+            return visitor.product;
+        }
+        return toProduct(documents.document(docId, fieldsToLoad));
+    }
+
+    /**
+     * Decodes the product record straight from the stored bytes, without building a Document
+     */
+    private static final class ProductRecordVisitor extends StoredFieldVisitor {
+        private Product product;
+
+        @Override
+        public Status needsField(FieldInfo fieldInfo) {
+            if (product != null) {
+                return Status.STOP;
+            }
+            return ProductIndexSchema.PRODUCT_RECORD_FIELD.equals(fieldInfo.name) ? Status.YES : Status.NO;
+        }
+
+        @Override
+        public void binaryField(FieldInfo fieldInfo, byte[] value) {
+            product = ProductRecordCodec.decode(new BytesRef(value));
+        }
+    }
+
+    /**
+     * Product built from whichever stored fields were loaded; the full layout stores missing values as empty strings
+     */
+    private static Product toProduct(Document doc) {
+        Product product = new Product();
+        product.setProductId(doc.get("productId"));
+        product.setIsPrimarySupplier(emptyToNull(doc.get("isPrimarySupplier")));
+        product.setSupplierGroupId(emptyToNull(doc.get("supplierGroupId")));
+        product.setSupplier(emptyToNull(doc.get("supplier")));
+        product.setItemDescription(emptyToNull(doc.get("itemDescription")));
+        product.setSmktsMerchCategory(emptyToNull(doc.get("smktsMerchCategory")));
+        product.setLiqMerchCategory(emptyToNull(doc.get("liqMerchCategory")));
+        product.setDigitalBrandName(emptyToNull(doc.get("digitalBrandName")));
+        product.setSubBrandName(emptyToNull(doc.get("subBrandName")));
+        return product;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Stream the IDs of every product matching the supplier query, page by page in supplier and product ID
+     * order (index order if the index is unsorted), from one searcher snapshot. Paging uses searchAfter, so memory is bounded by the page size however many
+     * products match. maxResults of 0 or less means no limit. Returns the number of IDs streamed.
+     */
+    public long streamProductIdsBySupplier(String supplierIds, long maxResults, Set<String> requestedFields,
+                                           StageTimer timer, PageConsumer consumer) throws Exception {
+        if (supplierIds == null || supplierIds.trim().isEmpty()) {
+            return 0;
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            Query query = buildSupplierQuery(supplierIds);
+            StoredFields documents = searcher.storedFields();
+            Set<String> storedFields = storedFieldsFor(requestedFields);
+            Set<String> fieldsToLoad = storedFields != null ? storedFields : PRODUCT_ID_FIELD;
+            timer.mark("open");
+
+            long streamed = 0;
+            ScoreDoc after = null;
+            while (maxResults <= 0 || streamed < maxResults) {
+                int pageSize = maxResults > 0 ? (int) Math.min(streamPageSize, maxResults - streamed) : streamPageSize;
+                // Either order needs no scoring and lets each page skip straight past the previous one
+                TopDocs page = searcher.searchAfter(after, query, pageSize, resultOrder(), false);
+                timer.mark("search");
+                if (page.scoreDocs.length == 0) {
+                    break;
+                }
+
+                List<String> productIds = new ArrayList<>(page.scoreDocs.length);
+                List<Product> products = storedFields != null ? new ArrayList<>(page.scoreDocs.length) : null;
+                for (ScoreDoc scoreDoc : page.scoreDocs) {
+                    Product product = readStoredProduct(documents, scoreDoc.doc, fieldsToLoad);
+                    productIds.add(product.getProductId());
+                    if (products != null) {
+                        products.add(product);
+                    }
+                }
+                timer.mark("load");
+
+                consumer.accept(productIds, products);
+                streamed += productIds.size();
+                if (page.scoreDocs.length < pageSize) {
+                    break;
+                }
+                after = page.scoreDocs[page.scoreDocs.length - 1];
+            }
+            return streamed;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Profile a query against the current index: its rewritten form, how many index terms each
+     * fuzzy/wildcard clause enumerates (summed across segments), the per-clause timing breakdown
+     * from Lucene's query profiler, the hit count and score explanations for the top hits
+     */
+    public QueryProfileReport profileQuery(Query query, int maxResults, int explainHits) throws IOException {
+        QueryProfileReport report = new QueryProfileReport();
+        report.setTimestamp(System.currentTimeMillis());
+        report.setQuery(query.toString());
+
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            IndexReader reader = shared.getIndexReader();
+            IndexSearcher searcher = new IndexSearcher(reader);
+            report.setRewrittenQuery(searcher.rewrite(query).toString());
+            report.setTotalHits(searcher.count(query));
+            countExpandedTerms(reader, query, report);
+
+            QueryProfilerIndexSearcher profiler = new QueryProfilerIndexSearcher(reader);
+            long start = System.nanoTime();
+            TopDocs results = profiler.search(query, Math.max(1, maxResults));
+            report.setProfiledSearchMicros((System.nanoTime() - start) / 1000);
+            for (QueryProfilerResult result : profiler.getProfileResult()) {
+                report.getProfile().add(toProfileNode(result));
+            }
+
+            StoredFields storedFields = searcher.storedFields();
+            for (int i = 0; i < Math.min(explainHits, results.scoreDocs.length); i++) {
+                ScoreDoc scoreDoc = results.scoreDocs[i];
+                Map<String, Object> explanation = new LinkedHashMap<>();
+                explanation.put("productId", readStoredProduct(storedFields, scoreDoc.doc, PRODUCT_ID_FIELD).getProductId());
+                explanation.put("score", scoreDoc.score);
+                explanation.put("explanation", searcher.explain(query, scoreDoc.doc).toString());
+                report.getExplanations().add(explanation);
+            }
+        } finally {
+            searcherManager.release(shared);
+        }
+        return report;
+    }
+
+    private void countExpandedTerms(IndexReader reader, Query query, QueryProfileReport report) throws IOException {
+        Set<MultiTermQuery> multiTermQueries = Collections.newSetFromMap(new IdentityHashMap<>());
+        query.visit(new QueryVisitor() {
+            @Override
+            public void consumeTermsMatching(Query leaf, String field, Supplier<ByteRunAutomaton> automaton) {
+                visitLeaf(leaf);
+            }
+
+            @Override
+            public void visitLeaf(Query leaf) {
+                if (leaf instanceof MultiTermQuery multiTermQuery) {
+                    multiTermQueries.add(multiTermQuery);
+                }
+            }
+
+            @Override
+            public QueryVisitor getSubVisitor(BooleanClause.Occur occur, Query parent) {
+                return this;
+            }
+        });
+
+        long total = 0;
+        for (MultiTermQuery multiTermQuery : multiTermQueries) {
+            long count = 0;
+            for (LeafReaderContext leaf : reader.leaves()) {
+                Terms terms = leaf.reader().terms(multiTermQuery.getField());
+                if (terms == null) {
+                    continue;
+                }
+                TermsEnum termsEnum = multiTermQuery.getTermsEnum(terms);
+                while (termsEnum.next() != null) {
+                    count++;
+                }
+            }
+            report.getExpandedTermsByClause().merge(multiTermQuery.toString(), count, Long::sum);
+            total += count;
+        }
+        report.setExpandedTerms(total);
+    }
+
+    private Map<String, Object> toProfileNode(QueryProfilerResult result) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("type", result.getQueryName());
+        node.put("description", result.getDescription());
+        node.put("timeMicros", result.getTotalTime() / 1000);
+        node.put("breakdown", result.getTimeBreakdown());
+        List<Map<String, Object>> children = new ArrayList<>();
+        for (QueryProfilerResult child : result.getProfiledChildren()) {
+            children.add(toProfileNode(child));
+        }
+        node.put("children", children);
+        return node;
+    }
+
+    /**
+     * Generation of the last index commit, recorded with logged queries so runs can be matched to an index build
+     */
+    public long getIndexGeneration() {
+        return indexGeneration;
+    }
+
+    /**
+     * Changes whenever searches start seeing different index contents: a rebuild, force-merge or rollback, or
+     * a refresh that published updates. Results computed while a version was current stay exact until it changes.
+     */
+    public long getSearcherVersion() {
+        return searcherVersion.get();
+    }
+
+    /**
+     * Run the listener after each change of searcher version, on the thread that made it; it should only hand
+     * work off
+     */
+    public void addSearcherListener(Runnable listener) {
+        searcherListeners.add(listener);
+    }
+
+    /**
+     * Warms every searcher before it replaces the current one: replays supplier and supplier+brand
+     * searches so the terms dictionary, postings and stored fields they touch are paged in
+     */
+    private class WarmingSearcherFactory extends SearcherFactory {
+        @Override
+        public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) throws IOException {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            useQueryCache(searcher);
+            if (warmupEnabled && warmNextSearcher && reader.numDocs() > 0) {
+                warmNextSearcher = false;
+                warm(searcher);
+            }
+            return searcher;
+        }
+    }
+
+    private void warm(IndexSearcher searcher) throws IOException {
+        StageTimer timer = new StageTimer();
+        IndexReader reader = searcher.getIndexReader();
+        List<String> suppliers = warmupSuppliers.isBlank()
+            ? warmupTerms(reader, ProductQueryBuilder.SUPPLIER_ID_FIELD) : new ArrayList<>(parseList(warmupSuppliers));
+        List<String> brands = warmupBrands.isBlank()
+            ? warmupTerms(reader, "brand") : new ArrayList<>(parseList(warmupBrands));
+        timer.mark("terms");
+
+        int queries = 0;
+        long hits = 0;
+        for (int i = 0; i < suppliers.size(); i++) {
+            // Supplier alone, then with a brand filter
+            List<String> brandSearches = brands.isEmpty()
+                ? Collections.singletonList(null) : Arrays.asList(null, brands.get(i % brands.size()));
+            for (String brandSearch : brandSearches) {
+                // Counting and then searching uses the supplier filter twice, enough for it to be cached
+                Query query = buildSupplierFilterQuery(suppliers.get(i), brandSearch, null);
+                searcher.count(query);
+                TopDocs results = searcher.search(query, WARMUP_HITS);
+                StoredFields storedFields = searcher.storedFields();
+                for (ScoreDoc scoreDoc : results.scoreDocs) {
+                    storedFields.document(scoreDoc.doc);
+                }
+                hits += results.scoreDocs.length;
+                queries++;
+            }
+        }
+        timer.mark("search");
+        searchMetricsService.record("warmup", timer, hits);
+
+        Map<String, Object> warmup = new LinkedHashMap<>();
+        warmup.put("queries", queries);
+        warmup.put("suppliers", suppliers.size());
+        warmup.put("brands", brands.size());
+        warmup.put("timeMs", timer.getElapsedMillis());
+        lastWarmup = warmup;
+        System.out.println("Warmed searcher over " + reader.numDocs() + " documents with " + queries
+            + " queries in " + timer.getElapsedMillis() + "ms");
+    }
+
+    // A snapshot's manifest records the terms it was built to be warmed with, saving the scan of the terms dictionary
+    private List<String> warmupTerms(IndexReader reader, String field) throws IOException {
+        List<String> recorded = IndexSnapshot.warmupTerms(snapshotManifest, field);
+        return !recorded.isEmpty() ? recorded : IndexSnapshot.topTerms(reader, field, warmupTopTerms);
+    }
+
+    private static Set<String> parseList(String list) {
+        return Arrays.stream(list.split(","))
+            .map(String::trim)
+            .filter(item -> !item.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    public IndexStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Outcome of the most recent searcher warmup: queries run, suppliers and brands used, time taken
+     */
+    public Map<String, Object> getLastWarmup() {
+        return lastWarmup;
+    }
+
+    /**
+     * Live documents in the current searcher
+     */
+    public int getDocumentCount() throws IOException {
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            return shared.getIndexReader().numDocs();
+        } finally {
+            searcherManager.release(shared);
+        }
+    }
+
+    /**
+     * Index size by file type, and how long reading a whole stored product takes, for comparing stored
+     * layouts and compression modes. Reads up to samples products spread evenly over the index.
+     */
+    public Map<String, Object> getFootprintReport(int samples) throws IOException {
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            DirectoryReader reader = (DirectoryReader) shared.getIndexReader();
+            Map<String, Long> bytesByType = new TreeMap<>();
+            long totalBytes = indexDirectory.fileLength(SegmentInfos.readLatestCommit(indexDirectory).getSegmentsFileName());
+            bytesByType.put("other", totalBytes);
+            for (SegmentCommitInfo segment : searchedSegments(reader)) {
+                totalBytes += segment.sizeInBytes();
+                addBytesByType(segment, bytesByType);
+            }
+
+            Histogram retrievalNanos = new Histogram();
+            StoredFields documents = reader.storedFields();
+            int maxDoc = reader.maxDoc();
+            int sampleCount = Math.min(Math.max(0, samples), maxDoc);
+            for (int i = 0; i < sampleCount; i++) {
+                int docId = (int) ((long) i * maxDoc / sampleCount);
+                long start = System.nanoTime();
+                readStoredProduct(documents, docId, ALL_PRODUCT_FIELDS);
+                retrievalNanos.record(System.nanoTime() - start);
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("storedLayout", ProductIndexSchema.layoutName(leanLayout));
+            report.put("storedCompression", storedCompression.name().toLowerCase());
+            report.put("documents", reader.numDocs());
+            report.put("segments", reader.leaves().size());
+            report.put("totalBytes", totalBytes);
+            report.put("bytesPerDocument", reader.numDocs() > 0 ? totalBytes / reader.numDocs() : 0);
+            report.put("bytesByType", bytesByType);
+            report.put("retrievalMicros", retrievalNanos.snapshot(1000.0));
+            return report;
+        } finally {
+            searcherManager.release(shared);
+        }
+    }
+
+    // A compound segment packs its files into one; they are broken out from inside it
+    private void addBytesByType(SegmentCommitInfo segment, Map<String, Long> bytesByType) throws IOException {
+        for (String file : segment.files()) {
+            String type = fileType(file);
+            if (!type.equals("compoundFiles")) {
+                bytesByType.merge(type, indexDirectory.fileLength(file), Long::sum);
+            }
+        }
+        if (segment.info.getUseCompoundFile()) {
+            try (Directory compound = segment.info.getCodec().compoundFormat()
+                    .getCompoundReader(indexDirectory, segment.info, IOContext.READONCE)) {
+                for (String file : compound.listAll()) {
+                    bytesByType.merge(fileType(file), compound.fileLength(file), Long::sum);
+                }
+            }
+        }
+    }
+
+    // Groups index files by what they hold, from their extension
+    private static String fileType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1);
+        switch (extension) {
+            case "fdt": case "fdx": case "fdm":
+                return "storedFields";
+            case "tim": case "tip": case "tmd":
+                return "termsDictionary";
+            case "doc": case "pos": case "pay":
+                return "postings";
+            case "dvd": case "dvm":
+                return "docValues";
+            case "nvd": case "nvm":
+                return "norms";
+            case "cfs": case "cfe":
+                return "compoundFiles";
+            default:
+                return "other";
+        }
+    }
+
+    /**
+     * Query cache size and hit statistics; hits are filter lookups served from a cached bitset
+     */
+    public Map<String, Object> getQueryCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", queryCache != null);
+        if (queryCache == null) {
+            return stats;
+        }
+        long hits = queryCache.getHitCount();
+        long lookups = hits + queryCache.getMissCount();
+        stats.put("maxQueries", queryCacheMaxQueries);
+        stats.put("maxRamMb", queryCacheMaxRamMb);
+        stats.put("minSegmentDocs", queryCacheMinSegmentDocs);
+        stats.put("cachedEntries", queryCache.getCacheSize());
+        stats.put("ramBytes", queryCache.ramBytesUsed());
+        stats.put("hits", hits);
+        stats.put("misses", queryCache.getMissCount());
+        stats.put("hitRate", lookups > 0 ? Math.round(hits * 1000.0 / lookups) / 1000.0 : 0.0);
+        stats.put("cacheCount", queryCache.getCacheCount());
+        stats.put("evictions", queryCache.getEvictionCount());
+        return stats;
+    }
+
+    public void clearQueryCache() {
+        if (queryCache != null) {
+            queryCache.clear();
+        }
+    }
+
+    // The segments a reader searches, including near-real-time ones not yet committed
+    private static List<SegmentCommitInfo> searchedSegments(DirectoryReader reader) {
+        List<SegmentCommitInfo> segments = new ArrayList<>();
+        for (LeafReaderContext leaf : reader.leaves()) {
+            segments.add(segmentOf(leaf));
+        }
+        return segments;
+    }
+
+    private static SegmentCommitInfo segmentOf(LeafReaderContext leaf) {
+        return ((SegmentReader) FilterLeafReader.unwrap(leaf.reader())).getSegmentInfo();
+    }
+
+    private void refreshIndexGeneration() throws IOException {
+        indexGeneration = SegmentInfos.getLastCommitGeneration(indexDirectory);
+    }
+
+    /**
+     * Structured index statistics: documents and deletions, per-segment sizes, the current commit and when
+     * it was made and published, writer and heap usage, merge state and configuration. fieldBytes adds an
+     * estimate of the on-disk bytes per field, which reads the whole index.
+     */
+    public Map<String, Object> getIndexStats(boolean fieldBytes) throws IOException {
+        IndexSearcher shared = searcherManager.acquire();
+        try {
+            DirectoryReader reader = (DirectoryReader) shared.getIndexReader();
+            // The searcher may be ahead of the last commit, holding changes not yet committed
+            SegmentInfos lastCommit = SegmentInfos.readLatestCommit(indexDirectory);
+            Map<String, Object> stats = new LinkedHashMap<>();
+
+            int deletedDocs = reader.numDeletedDocs();
+            stats.put("documents", reader.numDocs());
+            stats.put("maxDoc", reader.maxDoc());
+            stats.put("deletedDocs", deletedDocs);
+            stats.put("deletedRatio", reader.maxDoc() > 0 ? Math.round(deletedDocs * 10000.0 / reader.maxDoc()) / 10000.0 : 0.0);
+
+            List<Map<String, Object>> segments = new ArrayList<>();
+            long totalBytes = 0;
+            for (LeafReaderContext leaf : reader.leaves()) {
+                SegmentCommitInfo segment = segmentOf(leaf);
+                long sizeBytes = segment.sizeInBytes();
+                totalBytes += sizeBytes;
+                Map<String, Object> segmentStats = new LinkedHashMap<>();
+                segmentStats.put("name", segment.info.name);
+                segmentStats.put("maxDoc", segment.info.maxDoc());
+                segmentStats.put("deletedDocs", leaf.reader().numDeletedDocs());
+                segmentStats.put("sizeBytes", sizeBytes);
+                segmentStats.put("compound", segment.info.getUseCompoundFile());
+                // flush, merge or addIndexes
+                segmentStats.put("source", segment.info.getDiagnostics().get("source"));
+                segments.add(segmentStats);
+            }
+            stats.put("segmentCount", segments.size());
+            stats.put("totalBytes", totalBytes);
+            stats.put("segments", segments);
+
+            Map<String, String> userData = lastCommit.getUserData();
+            Map<String, Object> commitStats = new LinkedHashMap<>();
+            commitStats.put("generation", lastCommit.getGeneration());
+            commitStats.put("segmentsFile", lastCommit.getSegmentsFileName());
+            // Unique per commit, so two nodes (or two polls) with the same fingerprint hold the same index
+            commitStats.put("fingerprint", StringHelper.idToString(lastCommit.getId()));
+            commitStats.put("userData", userData);
+            commitStats.put("committedAt", userData.containsKey(ProductIndexSchema.COMMITTED_AT_KEY) ? Long.valueOf(userData.get(ProductIndexSchema.COMMITTED_AT_KEY)) : null);
+            commitStats.put("searcherRefreshedAt", lastRefreshMillis);
+            commitStats.put("searcherCurrent", searcherManager.isSearcherCurrent());
+            stats.put("commit", commitStats);
+
+            IndexWriter writer = indexWriter;
+            if (writer != null) {
+                Map<String, Object> writerStats = new LinkedHashMap<>();
+                writerStats.put("ramBufferBytes", writer.ramBytesUsed());
+                writerStats.put("pendingDocs", writer.getPendingNumDocs());
+                writerStats.put("uncommittedChanges", writer.hasUncommittedChanges());
+                writerStats.put("pendingMerges", writer.hasPendingMerges());
+                writerStats.put("mergingSegments", writer.getMergingSegments().size());
+                stats.put("writer", writerStats);
+
+                Map<String, Object> durabilityStats = new LinkedHashMap<>();
+                durabilityStats.put("mode", durability.label());
+                durabilityStats.put("uncommittedDocs", uncommittedDocs.get());
+                long since = uncommittedSince;
+                durabilityStats.put("oldestUncommittedMs", since > 0 ? System.currentTimeMillis() - since : 0);
+                durabilityStats.put("refreshIntervalMs", refreshIntervalMs);
+                stats.put("durability", durabilityStats);
+            }
+
+            Map<String, Object> memory = new LinkedHashMap<>();
+            // Index files held on the heap: all of them in heap storage, small new segments in hybrid storage
+            memory.put("directoryHeapBytes", indexDirectory instanceof Accountable accountable ? accountable.ramBytesUsed() : 0L);
+            memory.put("queryCacheBytes", queryCache != null ? queryCache.ramBytesUsed() : 0L);
+            memory.put("writerBufferBytes", writer != null ? writer.ramBytesUsed() : 0L);
+            Runtime runtime = Runtime.getRuntime();
+            memory.put("jvmHeapUsedBytes", runtime.totalMemory() - runtime.freeMemory());
+            memory.put("jvmHeapMaxBytes", runtime.maxMemory());
+            stats.put("memory", memory);
+
+            Map<String, Object> configuration = new LinkedHashMap<>();
+            configuration.put("storage", storage.name().toLowerCase());
+            configuration.put("indexSort", indexSortEnabled ? ProductIndexSchema.INDEX_SORT.toString() : "none");
+            configuration.put("storedLayout", ProductIndexSchema.layoutName(leanLayout));
+            configuration.put("storedCompression", storedCompression.name().toLowerCase());
+            configuration.put("segmentsPerTier", segmentsPerTier);
+            configuration.put("maxMergedSegmentMb", maxMergedSegmentMb);
+            configuration.put("deletesPctAllowed", deletesPctAllowed);
+            stats.put("configuration", configuration);
+            if (readOnly) {
+                stats.put("snapshot", snapshotManifest);
+            }
+            stats.put("lastWarmup", lastWarmup);
+
+            if (fieldBytes) {
+                stats.put("fieldBytes", FieldDiskUsage.analyze(indexDirectory));
+            }
+            return stats;
+        } finally {
+            searcherManager.release(shared);
+        }
     }
 }
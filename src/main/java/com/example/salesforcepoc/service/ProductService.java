@@ -1,30 +1,159 @@
 package com.example.salesforcepoc.service;
 
+import com.example.salesforcepoc.common.QueryResults;
+import com.example.salesforcepoc.common.TimeBudget;
+import com.example.salesforcepoc.config.CacheConfig;
 import com.example.salesforcepoc.entity.Product;
 import com.example.salesforcepoc.repository.ProductRepository;
+import com.example.salesforcepoc.repository.ProductSummary;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class ProductService {
     
+    // Keeps IN lists to a size H2 plans well
+    private static final int HYDRATION_CHUNK_SIZE = 500;
+    
+    // Largest keyset page a caller may ask for
+    public static final int MAX_PAGE_SIZE = 1000;
+    
     @Autowired
     private ProductRepository productRepository;
+    
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+    
+    @Autowired
+    private SearchExecutorService searchExecutorService;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Value("${search.cache.products.max-per-request:100}")
+    private int maxCachedPerRequest;
+    
+    // Cached products are detached and shared between requests, so callers must treat them as read-only.
+    // Only hot-path hydration adds to it, so its statistics describe the SKUs requests keep asking for:
+    // getProductByProductId, the first max-per-request results of hydrateProducts, and getProductsByProductIds
+    // (the batch endpoint). Bulk reads go through loadProducts, which reads it quietly and never adds to it:
+    // supplier exports, hot-supplier page builds (those pages are held by HotSupplierService) and re-indexing.
+    private Cache productCache;
+    private Cache supplierPageCache;
+    
+    @PostConstruct
+    public void init() {
+        productCache = cacheManager.getCache(CacheConfig.PRODUCTS_BY_ID);
+        supplierPageCache = cacheManager.getCache(CacheConfig.SUPPLIER_PAGES);
+    }
 
     // Required for Lucene indexing
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
     
-    // Required for SearchController 
+    // Required for SearchController; served from the product cache when possible
     public Product getProductByProductId(String productId) {
-        return productRepository.findByProductId(productId);
+        return getProductByProductId(productId, true);
+    }
+    
+    private Product getProductByProductId(String productId, boolean hotPath) {
+        Product cached = cachedProduct(productId, hotPath);
+        if (cached != null) {
+            return cached;
+        }
+        searchMetricsService.increment(hotPath ? "hydration.dbCalls" : "bulkLoad.dbCalls");
+        Product product = productRepository.findByProductId(productId);
+        if (product != null && hotPath) {
+            productCache.put(productId, product);
+        }
+        return product;
+    }
+    
+    // Load products one by one in result order, stopping once the time budget is spent. Only the first
+    // search.cache.products.max-per-request results are cached, so a large limit can't flush the cache
+    public List<Product> hydrateProducts(List<String> productIds, TimeBudget budget) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            if (budget.isExpired()) {
+                break;
+            }
+            Product product = getProductByProductId(productIds.get(i), i < maxCachedPerRequest);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+    
+    // The products the index already supplied, or the result IDs hydrated on the hydration pool
+    public CompletableFuture<List<Product>> hydrateProductsAsync(QueryResults queryResults, TimeBudget budget) {
+        if (queryResults.getProducts() != null) {
+            return CompletableFuture.completedFuture(queryResults.getProducts());
+        }
+        return searchExecutorService.hydrate(() -> hydrateProducts(queryResults.getProductIds(), budget));
+    }
+    
+    // Hydrate many products keyed by productId: cached ones first, the rest with one IN query per chunk; duplicates are looked up once
+    public Map<String, Product> getProductsByProductIds(Collection<String> productIds) {
+        return getProductsByProductIds(productIds, true);
+    }
+    
+    // Bulk read: like getProductsByProductIds, but neither caches what it loads nor counts in the cache statistics
+    public Map<String, Product> loadProducts(Collection<String> productIds) {
+        return getProductsByProductIds(productIds, false);
+    }
+    
+    private Map<String, Product> getProductsByProductIds(Collection<String> productIds, boolean hotPath) {
+        Map<String, Product> products = new HashMap<>();
+        List<String> missingIds = new ArrayList<>();
+        for (String productId : new LinkedHashSet<>(productIds)) {
+            Product cached = cachedProduct(productId, hotPath);
+            if (cached != null) {
+                products.put(productId, cached);
+            } else {
+                missingIds.add(productId);
+            }
+        }
+        for (int start = 0; start < missingIds.size(); start += HYDRATION_CHUNK_SIZE) {
+            List<String> chunk = missingIds.subList(start, Math.min(missingIds.size(), start + HYDRATION_CHUNK_SIZE));
+            searchMetricsService.increment(hotPath ? "hydration.dbCalls" : "bulkLoad.dbCalls");
+            for (Product product : productRepository.findAllById(chunk)) {
+                products.put(product.getProductId(), product);
+                if (hotPath) {
+                    productCache.put(product.getProductId(), product);
+                }
+            }
+        }
+        return products;
     }
     
-    // Required for SearchController database search comparison
+    // A bulk read's lookup is not recorded as a hit or miss
+    private Product cachedProduct(String productId, boolean hotPath) {
+        if (hotPath) {
+            return productCache.get(productId, Product.class);
+        }
+        return (Product) ((CaffeineCache) productCache).getNativeCache().policy().getIfPresentQuietly(productId);
+    }
+    
+    // Unbounded LIKE scan over all text columns; the search endpoints go through DatabaseSearchService
     public List<Product> searchProducts(String searchTerm) {
         return productRepository.searchProducts(searchTerm);
     }
@@ -36,15 +165,7 @@ public class ProductService {
     
     // Main business logic method - search by multiple suppliers (comma-separated)
     public List<Product> getProductsBySuppliers(String suppliers) {
-        if (suppliers == null || suppliers.trim().isEmpty()) {
-            return List.of();
-        }
-        
-        // Split by comma and trim whitespace
-        List<String> supplierList = Arrays.stream(suppliers.split(","))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .toList();
+        List<String> supplierList = parseSuppliers(suppliers);
         
         if (supplierList.isEmpty()) {
             return List.of();
@@ -57,4 +178,69 @@ public class ProductService {
         
         return productRepository.findBySupplierIn(supplierList);
     }
+    
+    // One keyset page of the suppliers' products ordered by productId; pass the last productId of a page to get the next
+    public List<ProductSummary> getSupplierPage(String suppliers, String afterProductId, int size) {
+        List<String> supplierList = parseSuppliers(suppliers);
+        if (supplierList.isEmpty()) {
+            return List.of();
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        String after = afterProductId != null ? afterProductId : "";
+        String cacheKey = String.join(",", supplierList.stream().sorted().toList()) + "|" + after + "|" + pageSize;
+        return supplierPageCache.get(cacheKey, () -> {
+            searchMetricsService.increment("supplierPage.dbCalls");
+            return List.copyOf(productRepository.findSupplierPage(supplierList, after, Limit.of(pageSize)));
+        });
+    }
+    
+    // Drop every cached product and supplier page, e.g. after an import replaced the data they came from
+    public void evictCaches() {
+        productCache.clear();
+        supplierPageCache.clear();
+        System.out.println("Product and supplier-page caches cleared");
+    }
+    
+    // Drop the cached copies of products whose rows changed, and the supplier pages they may have been on
+    public void evictProducts(Collection<String> productIds) {
+        productIds.forEach(productCache::evict);
+        supplierPageCache.clear();
+    }
+    
+    // Size, hit ratio and eviction counts per cache
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Cache cache : List.of(productCache, supplierPageCache)) {
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+            CacheStats cacheStats = nativeCache.stats();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("size", nativeCache.estimatedSize());
+            nativeCache.policy().eviction().ifPresent(eviction -> {
+                if (eviction.isWeighted()) {
+                    entry.put("weight", eviction.weightedSize().orElse(0));
+                    entry.put("maxWeight", eviction.getMaximum());
+                } else {
+                    entry.put("maxSize", eviction.getMaximum());
+                }
+            });
+            entry.put("hits", cacheStats.hitCount());
+            entry.put("misses", cacheStats.missCount());
+            entry.put("hitRatio", Math.round(cacheStats.hitRate() * 1000) / 1000.0);
+            entry.put("evictions", cacheStats.evictionCount());
+            stats.put(cache.getName(), entry);
+        }
+        return stats;
+    }
+    
+    // Split by comma and trim whitespace
+    private List<String> parseSuppliers(String suppliers) {
+        if (suppliers == null || suppliers.trim().isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(suppliers.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .toList();
+    }
 }
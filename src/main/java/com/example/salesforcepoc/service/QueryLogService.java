@@ -0,0 +1,229 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.QueryLogEntry;
+import com.example.salesforcepoc.common.StageTimer;
+import com.example.salesforcepoc.entity.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional structured query log. Controllers hand over one entry per request; a single
+ * background thread serializes them as JSON lines into a size-rolled local file so the
+ * request threads never touch the disk.
+ */
+@Service
+public class QueryLogService {
+
+    private static final String LOG_FILE_NAME = "query.log";
+
+    @Value("${search.query-log.enabled:false}")
+    private boolean enabled;
+
+    @Value("${search.query-log.directory:./query-log}")
+    private String directory;
+
+    @Value("${search.query-log.max-file-size-mb:64}")
+    private long maxFileSizeMb;
+
+    @Value("${search.query-log.max-files:10}")
+    private int maxFiles;
+
+    @Value("${search.query-log.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong droppedEntries = new AtomicLong();
+    private BlockingQueue<QueryLogEntry> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    @Autowired
+    private LuceneSearchService luceneSearchService;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(Paths.get(directory));
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::writeLoop, "query-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        System.out.println("Query log enabled, writing to " + Paths.get(directory, LOG_FILE_NAME).toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(5000);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getDroppedEntries() {
+        return droppedEntries.get();
+    }
+
+    /**
+     * Queue a request for logging. Never blocks: entries are dropped (and counted) when the writer falls behind.
+     */
+    public void log(String endpoint, Map<String, String> rawParams, List<Product> products,
+                    Integer totalHits, StageTimer timer) {
+        if (!enabled) {
+            return;
+        }
+
+        List<String> productIds = new ArrayList<>(products.size());
+        for (Product product : products) {
+            productIds.add(product.getProductId());
+        }
+
+        QueryLogEntry entry = new QueryLogEntry();
+        entry.setTimestamp(System.currentTimeMillis());
+        entry.setEndpoint(endpoint);
+        entry.setParams(normalizeParams(rawParams));
+        entry.setResultCount(products.size());
+        entry.setTotalHits(totalHits);
+        entry.setResultHash(QueryLogEntry.resultHash(productIds));
+        entry.setLatencyMicros(timer.toMicros());
+        entry.setIndexGeneration(luceneSearchService.getIndexGeneration());
+
+        if (!queue.offer(entry)) {
+            droppedEntries.incrementAndGet();
+        }
+    }
+
+    /**
+     * Build an ordered parameter map from alternating names and values; null values are allowed and skipped later
+     */
+    public static Map<String, String> params(String... namesAndValues) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            params.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return params;
+    }
+
+    /**
+     * Normalize request parameters so equivalent requests produce identical log lines:
+     * whitespace is collapsed, empty values are dropped and supplier ID lists are sorted and de-duplicated.
+     */
+    public static Map<String, String> normalizeParams(Map<String, String> rawParams) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (Map.Entry<String, String> param : rawParams.entrySet()) {
+            String value = param.getValue();
+            if (value == null || value.trim().isEmpty()) {
+                continue;
+            }
+            if ("supplierIds".equals(param.getKey())) {
+                TreeSet<String> suppliers = new TreeSet<>();
+                Arrays.stream(value.split(","))
+                        .map(String::trim)
+                        .filter(s -> !s.isEmpty())
+                        .forEach(suppliers::add);
+                value = String.join(",", suppliers);
+            } else {
+                value = value.trim().replaceAll("\\s+", " ");
+            }
+            params.put(param.getKey(), value);
+        }
+        return params;
+    }
+
+    private void writeLoop() {
+        Path logFile = Paths.get(directory, LOG_FILE_NAME);
+        OutputStream writer = null;
+        long currentSize = 0;
+        long maxBytes = maxFileSizeMb * 1024 * 1024;
+
+        try {
+            writer = openWriter(logFile);
+            currentSize = Files.size(logFile);
+
+            while (running || !queue.isEmpty()) {
+                QueryLogEntry entry = queue.poll(1, TimeUnit.SECONDS);
+                if (entry == null) {
+                    continue;
+                }
+
+                do {
+                    // Counted in bytes as written, so rolling matches the file size on disk
+                    byte[] line = objectMapper.writeValueAsBytes(entry);
+                    writer.write(line);
+                    writer.write('\n');
+                    currentSize += line.length + 1;
+
+                    if (currentSize >= maxBytes) {
+                        writer.close();
+                        rollFiles(logFile);
+                        writer = openWriter(logFile);
+                        currentSize = 0;
+                    }
+                } while ((entry = queue.poll()) != null);
+
+                // Flush once the queue is drained rather than per line
+                writer.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Query log writer stopped: " + e.getMessage());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close query log: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private OutputStream openWriter(Path logFile) throws IOException {
+        return new BufferedOutputStream(Files.newOutputStream(logFile,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Shift query.log.N-1 to query.log.N (dropping the oldest) and move the live file to query.log.1
+     */
+    private void rollFiles(Path logFile) throws IOException {
+        Files.deleteIfExists(Paths.get(logFile + "." + maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = Paths.get(logFile + "." + i);
+            if (Files.exists(source)) {
+                Files.move(source, Paths.get(logFile + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(logFile, Paths.get(logFile + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.Histogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pools the search endpoints hand their work to, so a Tomcat thread only parses the request and
+ * is free again while the search runs. Lucene searches and aggregation run on the search pool, sized to
+ * the CPUs; product hydration and other database work runs on the hydration pool, sized to the connection
+ * pool, so slow database calls queue behind each other instead of holding up searches.
+ * <p>
+ * When a pool's queue is full, submitting throws {@link RejectedExecutionException}, which the API answers
+ * with 503 and Retry-After.
+ */
+@Service
+public class SearchExecutorService {
+
+    public static final String POOL_SEARCH = "search";
+    public static final String POOL_HYDRATION = "hydration";
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    // false runs everything on the request thread, for comparison
+    @Value("${search.async.enabled:true}")
+    private boolean enabled;
+
+    // 0 uses the number of CPUs
+    @Value("${search.async.search-threads:0}")
+    private int searchThreads;
+
+    @Value("${search.async.search-queue-size:1000}")
+    private int searchQueueSize;
+
+    // Kept below the connection pool: exports, imports and index rebuilds take connections outside it
+    @Value("${search.async.hydration-threads:14}")
+    private int hydrationThreads;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${search.async.hydration-queue-size:1000}")
+    private int hydrationQueueSize;
+
+    private Pool searchPool;
+    private Pool hydrationPool;
+
+    @PostConstruct
+    public void init() {
+        searchPool = new Pool(POOL_SEARCH,
+            searchThreads > 0 ? searchThreads : Runtime.getRuntime().availableProcessors(), searchQueueSize);
+        hydrationPool = new Pool(POOL_HYDRATION, hydrationThreads, hydrationQueueSize);
+        if (hydrationThreads >= connectionPoolSize) {
+            System.err.println("search.async.hydration-threads (" + hydrationThreads + ") is not below the "
+                + connectionPoolSize + " database connections; busy hydration can starve exports, imports and rebuilds");
+        }
+        System.out.println("Search executors: " + searchPool.executor.getCorePoolSize() + " search and "
+            + hydrationPool.executor.getCorePoolSize() + " hydration threads" + (enabled ? "" : " (async disabled)"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchPool.executor.shutdownNow();
+        hydrationPool.executor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Run Lucene search work on the search pool
+     */
+    public <T> CompletableFuture<T> search(Callable<T> task) {
+        return searchPool.submit(task);
+    }
+
+    /**
+     * Run database work on the hydration pool
+     */
+    public <T> CompletableFuture<T> hydrate(Callable<T> task) {
+        return hydrationPool.submit(task);
+    }
+
+    /**
+     * The exception a stage failed with, without the CompletionException wrapping. A queue-full rejection
+     * is rethrown instead, so the request gets a 503 rather than the endpoint's own error response.
+     */
+    public static Throwable failureCause(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException rejected) {
+            throw rejected;
+        }
+        return cause;
+    }
+
+    /**
+     * Per pool: threads, active and queued tasks, completions, rejections and time spent queued
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put(POOL_SEARCH, searchPool.snapshot());
+        stats.put(POOL_HYDRATION, hydrationPool.snapshot());
+        return stats;
+    }
+
+    private final class Pool {
+        private final ThreadPoolExecutor executor;
+        private final int queueCapacity;
+        private final Histogram queueWait = new Histogram();
+        private final LongAdder rejected = new LongAdder();
+        private final AtomicInteger peakQueueDepth = new AtomicInteger();
+
+        private Pool(String name, int threads, int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+
+        private <T> CompletableFuture<T> submit(Callable<T> task) {
+            if (!enabled) {
+                try {
+                    return CompletableFuture.completedFuture(task.call());
+                } catch (Exception e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+            long submittedAt = System.nanoTime();
+            try {
+                CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+                    queueWait.record(System.nanoTime() - submittedAt);
+                    try {
+                        return task.call();
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor);
+                peakQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+                return future;
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                throw e;
+            }
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("threads", executor.getCorePoolSize());
+            snapshot.put("active", executor.getActiveCount());
+            snapshot.put("queueDepth", executor.getQueue().size());
+            snapshot.put("queueCapacity", queueCapacity);
+            snapshot.put("peakQueueDepth", peakQueueDepth.get());
+            snapshot.put("completed", executor.getCompletedTaskCount());
+            snapshot.put("rejected", rejected.sum());
+            snapshot.put("queueWaitMs", queueWait.snapshot(NANOS_PER_MILLI));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.Histogram;
+import com.example.salesforcepoc.common.StageTimer;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process latency and throughput metrics for search, import and indexing paths.
+ * Every path keeps a histogram per stage (nanoseconds), a hits-per-request histogram and a
+ * one-minute request rate; free-form counters cover things like hydration DB calls.
+ */
+@Service
+public class SearchMetricsService {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<String, PathMetrics> paths = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Record a completed request: each stage of the timer plus its total, and the number of hits it produced
+     */
+    public void record(String path, StageTimer timer, long hits) {
+        PathMetrics metrics = paths.computeIfAbsent(path, p -> new PathMetrics());
+        timer.getStageNanos().forEach((stage, nanos) -> metrics.stage(stage).record(nanos));
+        metrics.stage("total").record(timer.getTotalNanos());
+        metrics.hits.record(hits);
+        metrics.requests.increment();
+        metrics.rate.mark();
+    }
+
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public void add(String counter, long delta) {
+        counters.computeIfAbsent(counter, c -> new LongAdder()).add(delta);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> pathSummaries = new TreeMap<>();
+        paths.forEach((path, metrics) -> {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", metrics.requests.sum());
+            summary.put("requestsPerSecond", metrics.rate.perSecond());
+            Map<String, Object> stages = new LinkedHashMap<>();
+            metrics.stages.forEach((stage, histogram) -> stages.put(stage, histogram.snapshot(NANOS_PER_MILLI)));
+            summary.put("stagesMs", stages);
+            summary.put("hitsPerRequest", metrics.hits.snapshot(1.0));
+            pathSummaries.put(path, summary);
+        });
+
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, adder) -> counterValues.put(name, adder.sum()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("uptimeSeconds", (System.currentTimeMillis() - startedAt) / 1000);
+        result.put("paths", pathSummaries);
+        result.put("counters", counterValues);
+        return result;
+    }
+
+    private static final class PathMetrics {
+        // Insertion-ordered so stages are reported in the order they run
+        private final Map<String, Histogram> stages = Collections.synchronizedMap(new LinkedHashMap<>());
+        private final Histogram hits = new Histogram();
+        private final LongAdder requests = new LongAdder();
+        private final RateWindow rate = new RateWindow();
+
+        private Histogram stage(String name) {
+            Histogram histogram = stages.get(name);
+            return histogram != null ? histogram : stages.computeIfAbsent(name, n -> new Histogram());
+        }
+    }
+
+    /**
+     * Request rate over the last minute, kept as 60 one-second slots
+     */
+    private static final class RateWindow {
+        private static final int SLOTS = 60;
+        private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+        private final AtomicLongArray seconds = new AtomicLongArray(SLOTS);
+
+        private void mark() {
+            long second = System.currentTimeMillis() / 1000;
+            int slot = (int) (second % SLOTS);
+            long slotSecond = seconds.get(slot);
+            if (slotSecond != second && seconds.compareAndSet(slot, slotSecond, second)) {
+                counts.set(slot, 0);
+            }
+            counts.incrementAndGet(slot);
+        }
+
+        private double perSecond() {
+            long now = System.currentTimeMillis() / 1000;
+            long total = 0;
+            for (int i = 0; i < SLOTS; i++) {
+                if (now - seconds.get(i) < SLOTS) {
+                    total += counts.get(i);
+                }
+            }
+            return Math.round(total * 100.0 / SLOTS) / 100.0;
+        }
+    }
+}
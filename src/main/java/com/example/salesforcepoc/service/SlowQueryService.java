@@ -0,0 +1,136 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.QueryProfileReport;
+import com.example.salesforcepoc.common.StageTimer;
+import org.apache.lucene.search.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slow-query log. Requests slower than the configured threshold are re-run through Lucene's query
+ * profiler on a single background thread and kept in a bounded in-memory list, so a burst of slow
+ * requests can never queue up more profiling work than one thread can absorb.
+ */
+@Service
+public class SlowQueryService {
+
+    /**
+     * Deferred query construction, so fast requests never pay for building the query twice
+     */
+    @FunctionalInterface
+    public interface QuerySource {
+        Query build() throws Exception;
+    }
+
+    @Value("${search.slow-query.threshold-ms:500}")
+    private long thresholdMs;
+
+    @Value("${search.slow-query.profile:true}")
+    private boolean profileEnabled;
+
+    @Value("${search.slow-query.max-entries:100}")
+    private int maxEntries;
+
+    @Autowired
+    private LuceneSearchService luceneSearchService;
+
+    @Autowired
+    private SearchMetricsService searchMetricsService;
+
+    private final Deque<QueryProfileReport> recentSlowQueries = new ArrayDeque<>();
+
+    private final ThreadPoolExecutor profilerExecutor = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+            runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-profiler");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    @PreDestroy
+    public void shutdown() {
+        profilerExecutor.shutdownNow();
+    }
+
+    /**
+     * Capture the request if it exceeded the threshold. querySource may be null for non-Lucene paths.
+     */
+    public void check(String path, Map<String, String> params, StageTimer timer, QuerySource querySource) {
+        long elapsedMs = timer.getTotalNanos() / 1_000_000L;
+        if (thresholdMs <= 0 || elapsedMs < thresholdMs) {
+            return;
+        }
+        searchMetricsService.increment("slowQueries");
+
+        QueryProfileReport basicReport = new QueryProfileReport();
+        basicReport.setTimestamp(System.currentTimeMillis());
+        fillRequestDetails(basicReport, path, params, timer);
+
+        if (!profileEnabled || querySource == null) {
+            record(basicReport);
+            return;
+        }
+
+        try {
+            profilerExecutor.execute(() -> {
+                QueryProfileReport report;
+                try {
+                    report = luceneSearchService.profileQuery(querySource.build(), 10, 0);
+                    fillRequestDetails(report, path, params, timer);
+                } catch (Exception e) {
+                    System.err.println("Failed to profile slow query on " + path + ": " + e.getMessage());
+                    report = basicReport;
+                }
+                record(report);
+            });
+        } catch (RejectedExecutionException e) {
+            // Profiler is saturated; keep the timing data without a profile
+            searchMetricsService.increment("slowQueries.profileSkipped");
+            record(basicReport);
+        }
+    }
+
+    public List<QueryProfileReport> getRecentSlowQueries() {
+        synchronized (recentSlowQueries) {
+            return new ArrayList<>(recentSlowQueries);
+        }
+    }
+
+    public long getThresholdMs() {
+        return thresholdMs;
+    }
+
+    private void fillRequestDetails(QueryProfileReport report, String path, Map<String, String> params, StageTimer timer) {
+        report.setPath(path);
+        report.setParams(QueryLogService.normalizeParams(params));
+        report.setElapsedMs(timer.getTotalNanos() / 1_000_000L);
+        report.setStageMicros(timer.toMicros());
+    }
+
+    private void record(QueryProfileReport report) {
+        System.out.println("Slow query on " + report.getPath() + " took " + report.getElapsedMs() + "ms. Params: "
+                + report.getParams()
+                + (report.getRewrittenQuery() != null ? ", rewritten: " + report.getRewrittenQuery() : "")
+                + ", expanded terms: " + report.getExpandedTerms()
+                + ", hits: " + report.getTotalHits());
+
+        synchronized (recentSlowQueries) {
+            recentSlowQueries.addFirst(report);
+            while (recentSlowQueries.size() > maxEntries) {
+                recentSlowQueries.removeLast();
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.salesforcepoc.tools;
+
+import com.example.salesforcepoc.common.IndexSnapshot;
+import com.example.salesforcepoc.common.ProductCsv;
+import com.example.salesforcepoc.common.ProductIndexSchema;
+import com.example.salesforcepoc.common.ProductQueryBuilder;
+import com.example.salesforcepoc.entity.Product;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.codecs.lucene95.Lucene95Codec;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Standalone tool that builds the Lucene index offline, so serving nodes can start from a ready index
+ * (search.index.snapshot) instead of importing and indexing at startup.
+ *
+ * <pre>
+ * build &lt;data.csv&gt; &lt;output-dir&gt; [layout] [compression] [warmup-terms]
+ *     Indexes every row of the CSV with the document layout the application uses, sorted by supplier and
+ *     product ID, merges it to a single segment and writes snapshot.json beside it: source checksum,
+ *     document count, layout, the most frequent suppliers and brands to warm searchers with, and a
+ *     fingerprint of the index files. layout is lean (default) or full, compression best_speed (default)
+ *     or best_compression, warmup-terms the number of suppliers and brands recorded (default 20).
+ *
+ * verify &lt;snapshot-dir&gt;
+ *     Checks the index files against the manifest's fingerprint.
+ * </pre>
+ */
+public class IndexBuilderCli {
+
+    private static final int PROGRESS_INTERVAL = 100_000;
+
+    private IndexBuilderCli() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && "build".equals(args[0])) {
+            boolean leanLayout = ProductIndexSchema.parseStoredLayout(args.length > 3 ? args[3] : "lean");
+            Lucene95Codec.Mode compression = ProductIndexSchema.parseStoredCompression(args.length > 4 ? args[4] : "best_speed");
+            int warmupTerms = args.length > 5 ? Integer.parseInt(args[5]) : 20;
+            build(Paths.get(args[1]), Paths.get(args[2]), leanLayout, compression, warmupTerms);
+        } else if (args.length == 2 && "verify".equals(args[0])) {
+            if (!verify(Paths.get(args[1]))) {
+                System.exit(2);
+            }
+        } else {
+            System.err.println("Usage:");
+            System.err.println("  build <data.csv> <output-dir> [lean|full] [best_speed|best_compression] [warmup-terms]");
+            System.err.println("  verify <snapshot-dir>");
+            System.exit(1);
+        }
+    }
+
+    static void build(Path csvFile, Path outputDir, boolean leanLayout, Lucene95Codec.Mode compression,
+                      int warmupTerms) throws IOException {
+        if (Files.exists(outputDir.resolve(IndexSnapshot.MANIFEST_FILE))) {
+            // Never rewrite a snapshot in place: a node may be serving it
+            throw new IOException(outputDir + " already holds a snapshot; build into a new directory");
+        }
+        Files.createDirectories(outputDir);
+        long start = System.currentTimeMillis();
+        long documents = 0;
+        long skipped = 0;
+
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        config.setIndexSort(ProductIndexSchema.INDEX_SORT);
+        config.setCodec(new Lucene95Codec(compression));
+        // Nothing searches the index while it is built; a large buffer means fewer, larger flushed segments
+        config.setRAMBufferSizeMB(256);
+        // Separate files rather than one compound file, so servers can preload the terms index and doc values by extension
+        config.setUseCompoundFile(false);
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setNoCFSRatio(0.0);
+        config.setMergePolicy(mergePolicy);
+        try (Directory directory = FSDirectory.open(outputDir);
+             IndexWriter writer = new IndexWriter(directory, config)) {
+            try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+                // Skip the header line
+                reader.readLine();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Product product = ProductCsv.parse(line);
+                    if (product == null) {
+                        skipped++;
+                        continue;
+                    }
+                    writer.addDocument(ProductIndexSchema.toDocument(product, leanLayout));
+                    if (++documents % PROGRESS_INTERVAL == 0) {
+                        System.out.println("Indexed " + documents + " products...");
+                    }
+                }
+            }
+            long indexMs = System.currentTimeMillis() - start;
+
+            // One segment: one terms dictionary per field to search and nothing left for a server to merge
+            writer.forceMerge(1);
+            Map<String, String> userData = new HashMap<>(ProductIndexSchema.schemaUserData(leanLayout));
+            userData.put(ProductIndexSchema.COMMITTED_AT_KEY, String.valueOf(System.currentTimeMillis()));
+            writer.setLiveCommitData(userData.entrySet());
+            writer.commit();
+            long buildMs = System.currentTimeMillis() - start;
+
+            Map<String, Object> manifest = new LinkedHashMap<>();
+            manifest.put("schemaVersion", ProductIndexSchema.SCHEMA_VERSION);
+            manifest.put("layout", ProductIndexSchema.layoutName(leanLayout));
+            manifest.put("compression", compression.name().toLowerCase());
+            manifest.put("indexSort", ProductIndexSchema.INDEX_SORT.toString());
+            manifest.put("documents", documents);
+            manifest.put("skippedRows", skipped);
+            manifest.put("segments", SegmentInfos.readLatestCommit(directory).size());
+            manifest.put("sourceFile", csvFile.getFileName().toString());
+            manifest.put("sourceSha256", IndexSnapshot.sha256(csvFile));
+            manifest.put("builtAt", System.currentTimeMillis());
+            manifest.put("indexMs", indexMs);
+            manifest.put("buildMs", buildMs);
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                Map<String, Object> warmup = new LinkedHashMap<>();
+                warmup.put(ProductQueryBuilder.SUPPLIER_ID_FIELD,
+                    IndexSnapshot.topTerms(reader, ProductQueryBuilder.SUPPLIER_ID_FIELD, warmupTerms));
+                warmup.put("brand", IndexSnapshot.topTerms(reader, "brand", warmupTerms));
+                manifest.put("warmup", warmup);
+            }
+            manifest.put("files", IndexSnapshot.commitFiles(directory));
+            manifest.put("fingerprint", IndexSnapshot.fingerprint(directory));
+            IndexSnapshot.writeManifest(outputDir, manifest);
+
+            System.out.println("Built index snapshot " + outputDir + ": " + documents + " products (" + skipped
+                + " rows skipped) in " + buildMs + "ms, fingerprint " + manifest.get("fingerprint"));
+        }
+    }
+
+    static boolean verify(Path snapshotDir) throws IOException {
+        Map<String, Object> manifest = IndexSnapshot.readManifest(snapshotDir);
+        try (Directory directory = FSDirectory.open(snapshotDir)) {
+            IndexSnapshot.verify(directory, manifest);
+            System.out.println(snapshotDir + ": OK, " + manifest.get("documents") + " products, fingerprint "
+                + manifest.get("fingerprint"));
+            return true;
+        } catch (IllegalStateException e) {
+            System.err.println(snapshotDir + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.salesforcepoc.tools;
+
+import com.example.salesforcepoc.common.QueryLogEntry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Standalone tool for performance regression testing against a captured query log.
+ *
+ * <pre>
+ * replay &lt;query.log&gt; &lt;baseUrl&gt; &lt;output.log&gt; [speed] [concurrency]
+ *     Re-executes every logged request against a running build. speed=1 keeps the original
+ *     inter-arrival times, speed=10 replays ten times faster, speed=0 sends as fast as possible.
+ *     The output uses the query log format, with latencyMicros.total measured client-side.
+ *
+ * diff &lt;baseline.log&gt; &lt;candidate.log&gt;
+ *     Compares two runs entry by entry: latency percentiles per endpoint and result set mismatches.
+ * </pre>
+ */
+public class QueryLogReplayer {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private QueryLogReplayer() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 4 && "replay".equals(args[0])) {
+            double speed = args.length > 4 ? Double.parseDouble(args[4]) : 1.0;
+            int concurrency = args.length > 5 ? Integer.parseInt(args[5]) : 16;
+            replay(Paths.get(args[1]), args[2], Paths.get(args[3]), speed, concurrency);
+        } else if (args.length == 3 && "diff".equals(args[0])) {
+            diff(Paths.get(args[1]), Paths.get(args[2]));
+        } else {
+            System.err.println("Usage:");
+            System.err.println("  replay <query.log> <baseUrl> <output.log> [speed] [concurrency]");
+            System.err.println("  diff <baseline.log> <candidate.log>");
+            System.exit(1);
+        }
+    }
+
+    static void replay(Path logFile, String baseUrl, Path outputFile, double speed, int concurrency) throws Exception {
+        List<QueryLogEntry> entries = readEntries(logFile);
+        if (entries.isEmpty()) {
+            System.out.println("No entries in " + logFile);
+            return;
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        Semaphore inFlight = new Semaphore(concurrency);
+        QueryLogEntry[] results = new QueryLogEntry[entries.size()];
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+        long firstTimestamp = entries.get(0).getTimestamp();
+        long replayStart = System.nanoTime();
+
+        for (int i = 0; i < entries.size(); i++) {
+            QueryLogEntry original = entries.get(i);
+
+            // Pace requests relative to the first entry, scaled by the speed factor
+            if (speed > 0) {
+                long targetNanos = (long) ((original.getTimestamp() - firstTimestamp) * 1_000_000L / speed);
+                long waitNanos = targetNanos - (System.nanoTime() - replayStart);
+                if (waitNanos > 0) {
+                    Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+                }
+            }
+
+            inFlight.acquire();
+            final int index = i;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + buildPath(original)))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+            long sendNanos = System.nanoTime();
+
+            pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .handle((response, error) -> {
+                        long latencyMicros = (System.nanoTime() - sendNanos) / 1000;
+                        results[index] = toReplayEntry(original, response, error, latencyMicros);
+                        inFlight.release();
+                        return null;
+                    }));
+        }
+
+        CompletableFuture.allOf(pending.toArray(CompletableFuture<?>[]::new)).join();
+
+        try (BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            for (QueryLogEntry result : results) {
+                writer.write(objectMapper.writeValueAsString(result));
+                writer.newLine();
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - replayStart) / 1_000_000L;
+        System.out.println("Replayed " + entries.size() + " requests in " + elapsedMs + "ms to " + outputFile);
+    }
+
+    static void diff(Path baselineFile, Path candidateFile) throws IOException {
+        List<QueryLogEntry> baseline = readEntries(baselineFile);
+        List<QueryLogEntry> candidate = readEntries(candidateFile);
+        int compared = Math.min(baseline.size(), candidate.size());
+        if (baseline.size() != candidate.size()) {
+            System.out.println("Warning: entry counts differ (" + baseline.size() + " vs " + candidate.size()
+                    + "), comparing the first " + compared);
+        }
+
+        Map<String, List<Long>> baselineLatencies = new TreeMap<>();
+        Map<String, List<Long>> candidateLatencies = new TreeMap<>();
+        List<String> mismatches = new ArrayList<>();
+        int mismatchCount = 0;
+
+        for (int i = 0; i < compared; i++) {
+            QueryLogEntry a = baseline.get(i);
+            QueryLogEntry b = candidate.get(i);
+            baselineLatencies.computeIfAbsent(a.getEndpoint(), k -> new ArrayList<>()).add(totalLatency(a));
+            candidateLatencies.computeIfAbsent(b.getEndpoint(), k -> new ArrayList<>()).add(totalLatency(b));
+
+            if (!a.getEndpoint().equals(b.getEndpoint()) || !a.getParams().equals(b.getParams())) {
+                mismatchCount++;
+                if (mismatches.size() < 10) {
+                    mismatches.add("#" + i + " request differs: " + a.getEndpoint() + a.getParams()
+                            + " vs " + b.getEndpoint() + b.getParams());
+                }
+            } else if (a.getResultCount() != b.getResultCount()
+                    || !String.valueOf(a.getResultHash()).equals(String.valueOf(b.getResultHash()))) {
+                mismatchCount++;
+                if (mismatches.size() < 10) {
+                    mismatches.add("#" + i + " " + a.getEndpoint() + a.getParams() + ": "
+                            + a.getResultCount() + " results (" + a.getResultHash() + ") vs "
+                            + b.getResultCount() + " results (" + b.getResultHash() + ")");
+                }
+            }
+        }
+
+        System.out.println(String.format("%-40s %8s %10s %10s %10s %10s", "endpoint", "run", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)"));
+        for (String endpoint : baselineLatencies.keySet()) {
+            printPercentiles(endpoint, "baseline", baselineLatencies.get(endpoint));
+            printPercentiles(endpoint, "candidate", candidateLatencies.getOrDefault(endpoint, new ArrayList<>()));
+        }
+
+        System.out.println();
+        System.out.println("Result set mismatches: " + mismatchCount + " of " + compared);
+        mismatches.forEach(m -> System.out.println("  " + m));
+    }
+
+    private static void printPercentiles(String endpoint, String run, List<Long> latenciesMicros) {
+        if (latenciesMicros.isEmpty()) {
+            System.out.println(String.format("%-40s %8s %10s", endpoint, run, "-"));
+            return;
+        }
+        long[] sorted = latenciesMicros.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.println(String.format("%-40s %8s %10.2f %10.2f %10.2f %10.2f", endpoint, run,
+                percentile(sorted, 0.50) / 1000.0, percentile(sorted, 0.90) / 1000.0,
+                percentile(sorted, 0.99) / 1000.0, sorted[sorted.length - 1] / 1000.0));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static long totalLatency(QueryLogEntry entry) {
+        Long total = entry.getLatencyMicros() != null ? entry.getLatencyMicros().get("total") : null;
+        return total != null ? total : 0L;
+    }
+
+    /**
+     * Rebuild the request path: {placeholders} in the endpoint are filled from params, the rest become the query string
+     */
+    static String buildPath(QueryLogEntry entry) {
+        String path = entry.getEndpoint();
+        StringBuilder queryString = new StringBuilder();
+
+        for (Map.Entry<String, String> param : entry.getParams().entrySet()) {
+            String placeholder = "{" + param.getKey() + "}";
+            String encoded = URLEncoder.encode(param.getValue(), StandardCharsets.UTF_8);
+            if (path.contains(placeholder)) {
+                path = path.replace(placeholder, encoded);
+            } else {
+                queryString.append(queryString.length() == 0 ? "?" : "&")
+                        .append(param.getKey()).append("=").append(encoded);
+            }
+        }
+        return path + queryString;
+    }
+
+    private static QueryLogEntry toReplayEntry(QueryLogEntry original, HttpResponse<String> response,
+                                               Throwable error, long latencyMicros) {
+        QueryLogEntry result = new QueryLogEntry();
+        result.setTimestamp(System.currentTimeMillis());
+        result.setEndpoint(original.getEndpoint());
+        result.setParams(original.getParams());
+        Map<String, Long> latency = new LinkedHashMap<>();
+        latency.put("total", latencyMicros);
+        result.setLatencyMicros(latency);
+
+        List<String> productIds = new ArrayList<>();
+        if (error == null && response.statusCode() == 200) {
+            try {
+                JsonNode body = objectMapper.readTree(response.body());
+                JsonNode products = body.has("products") ? body.get("products") : body;
+                if (body.has("totalCount")) {
+                    result.setTotalHits(body.get("totalCount").asInt());
+                }
+                for (JsonNode product : products) {
+                    productIds.add(product.path("productId").asText(null));
+                }
+            } catch (IOException e) {
+                System.err.println("Unparseable response for " + original.getEndpoint() + ": " + e.getMessage());
+            }
+        } else {
+            System.err.println("Request failed for " + original.getEndpoint() + original.getParams() + ": "
+                    + (error != null ? error.getMessage() : "HTTP " + response.statusCode()));
+            result.setResultHash("error");
+        }
+
+        result.setResultCount(productIds.size());
+        if (result.getResultHash() == null) {
+            result.setResultHash(QueryLogEntry.resultHash(productIds));
+        }
+        return result;
+    }
+
+    private static List<QueryLogEntry> readEntries(Path file) throws IOException {
+        List<QueryLogEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    entries.add(objectMapper.readValue(line, QueryLogEntry.class));
+                }
+            }
+        }
+        return entries;
+    }
+}
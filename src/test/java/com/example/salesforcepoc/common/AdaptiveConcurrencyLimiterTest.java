@@ -0,0 +1,76 @@
+package com.example.salesforcepoc.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testRejectsWhenLimitAndQueueAreFull() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0);
+        assertTrue(limiter.tryAcquire(0));
+        assertTrue(limiter.tryAcquire(0));
+        assertFalse(limiter.tryAcquire(50));
+
+        limiter.release(0, false);
+        assertTrue(limiter.tryAcquire(0));
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void testQueuedRequestAdmittedOnRelease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 1);
+        assertTrue(limiter.tryAcquire(0));
+
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            limiter.release(0, false);
+        });
+        releaser.start();
+        assertTrue(limiter.tryAcquire(5_000));
+        releaser.join();
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyRises() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 50, 0);
+        for (int i = 0; i < 200; i++) {
+            limiter.tryAcquire(0);
+            limiter.release(1_000_000, true);
+        }
+        int baselineLimit = limiter.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire(0);
+            limiter.release(20_000_000, true);
+        }
+        assertTrue(limiter.getLimit() < baselineLimit, "limit " + limiter.getLimit() + " did not drop from " + baselineLimit);
+    }
+
+    @Test
+    void testLimitGrowsOnlyWhenUsed() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 50, 0);
+        // One request at a time never uses half the limit, so the limit stays put
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire(0);
+            limiter.release(1_000_000, true);
+        }
+        assertEquals(10, limiter.getLimit());
+
+        // Saturating the limit with flat latency lets it grow
+        for (int round = 0; round < 20; round++) {
+            int permits = limiter.getLimit();
+            for (int i = 0; i < permits; i++) {
+                assertTrue(limiter.tryAcquire(0));
+            }
+            for (int i = 0; i < permits; i++) {
+                limiter.release(1_000_000, true);
+            }
+        }
+        assertTrue(limiter.getLimit() > 10, "limit was " + limiter.getLimit());
+    }
+}
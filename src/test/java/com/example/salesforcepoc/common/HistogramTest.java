@@ -0,0 +1,43 @@
+package com.example.salesforcepoc.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    void testBucketBoundsCoverValues() {
+        long[] values = {0, 1, 7, 8, 15, 16, 17, 1000, 123_456_789L, Long.MAX_VALUE / 2};
+        for (long value : values) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(Histogram.bucketUpperBound(index) >= value, "upper bound below " + value);
+            // Relative error is bounded by the sub-bucket width (1/8 of the power of two)
+            assertTrue(Histogram.bucketUpperBound(index) - value <= Math.max(1, value / 8), "bucket too wide for " + value);
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+
+        long p50 = histogram.getPercentile(0.50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125, "p50 was " + p50);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 was " + p99);
+    }
+
+    @Test
+    void testEmptyHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(0.99));
+        assertEquals(0, histogram.getMean());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.salesforcepoc.common;
+
+import com.example.salesforcepoc.entity.Product;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.IndexableField;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductIndexSchemaTest {
+
+    private static final Product PRODUCT = new Product("1000000", "106", "959608", "Y", "Eggs wine", "Dairy", null,
+        "Coles", "Finest");
+
+    @Test
+    void testLeanLayoutStoresOnlyTheRecord() {
+        Document doc = ProductIndexSchema.toDocument(PRODUCT, true);
+
+        assertEquals(Set.of(ProductIndexSchema.PRODUCT_RECORD_FIELD), storedFieldNames(doc));
+        ProductRecordCodecTest.assertSameFields(PRODUCT,
+            ProductRecordCodec.decode(doc.getBinaryValue(ProductIndexSchema.PRODUCT_RECORD_FIELD)));
+        assertSearchFields(doc);
+    }
+
+    @Test
+    void testFullLayoutStoresEachField() {
+        Document doc = ProductIndexSchema.toDocument(PRODUCT, false);
+
+        assertEquals(Set.of("productId", "isPrimarySupplier", "supplier", "itemDescription", "digitalBrandName",
+            "subBrandName", ProductQueryBuilder.SUPPLIER_GROUP_FIELD, ProductQueryBuilder.SMKTS_CATEGORY_FIELD,
+            ProductQueryBuilder.LIQ_CATEGORY_FIELD), storedFieldNames(doc));
+        assertNull(doc.get(ProductIndexSchema.PRODUCT_RECORD_FIELD));
+        // Missing values are stored as empty strings
+        assertEquals("", doc.get(ProductQueryBuilder.LIQ_CATEGORY_FIELD));
+        assertSearchFields(doc);
+    }
+
+    @Test
+    void testCommitUserDataIsCurrentOnlyWhenComplete() {
+        Map<String, String> lean = ProductIndexSchema.schemaUserData(true);
+        assertTrue(ProductIndexSchema.isCurrent(lean, true));
+        assertFalse(ProductIndexSchema.isCurrent(lean, false));
+
+        Map<String, String> rebuilding = new HashMap<>(lean);
+        rebuilding.put(ProductIndexSchema.INDEX_STATE_KEY, ProductIndexSchema.STATE_REBUILDING);
+        assertFalse(ProductIndexSchema.isCurrent(rebuilding, true));
+        assertFalse(ProductIndexSchema.isCurrent(Map.of(), true));
+    }
+
+    // Indexed fields the queries and the index sort rely on, whichever the layout
+    private static void assertSearchFields(Document doc) {
+        assertEquals("959608", doc.getField(ProductQueryBuilder.SUPPLIER_ID_FIELD).stringValue());
+        assertEquals("1000000", doc.getField(ProductIndexSchema.PRODUCT_KEY_FIELD).stringValue());
+        assertEquals("Coles Finest", doc.getField("brand").stringValue());
+        assertEquals("959608 106", doc.getField("supplierSearch").stringValue());
+        List<String> docValues = doc.getFields().stream()
+            .filter(field -> field.fieldType().docValuesType() != DocValuesType.NONE)
+            .map(IndexableField::name)
+            .collect(Collectors.toList());
+        assertEquals(List.of(ProductQueryBuilder.SUPPLIER_ID_FIELD, "productId"), docValues);
+    }
+
+    private static Set<String> storedFieldNames(Document doc) {
+        return doc.getFields().stream()
+            .filter(field -> field.fieldType().stored())
+            .map(IndexableField::name)
+            .collect(Collectors.toSet());
+    }
+}
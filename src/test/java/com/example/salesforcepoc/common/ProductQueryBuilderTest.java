@@ -0,0 +1,126 @@
+package com.example.salesforcepoc.common;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopTermsRewrite;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductQueryBuilderTest {
+
+    private static final int MAX_EXPANSIONS = 7;
+
+    private ProductQueryBuilder builder() {
+        return new ProductQueryBuilder(new StandardAnalyzer(), MAX_EXPANSIONS, 3);
+    }
+
+    @Test
+    void testSingleSupplierIsTermInSetFilter() {
+        List<BooleanClause> clauses = clauses(builder().suppliers("959608").build());
+
+        assertEquals(1, clauses.size());
+        assertEquals(BooleanClause.Occur.FILTER, clauses.get(0).getOccur());
+        assertEquals(new TermInSetQuery(ProductQueryBuilder.SUPPLIER_ID_FIELD, new BytesRef("959608")),
+            clauses.get(0).getQuery());
+    }
+
+    @Test
+    void testMultipleSuppliersShareOneFilter() {
+        List<BooleanClause> clauses = clauses(builder().suppliers(" 959608, 959606 ,959608").build());
+
+        assertEquals(1, clauses.size());
+        assertEquals(BooleanClause.Occur.FILTER, clauses.get(0).getOccur());
+        assertEquals(new TermInSetQuery(ProductQueryBuilder.SUPPLIER_ID_FIELD,
+            new BytesRef("959608"), new BytesRef("959606")), clauses.get(0).getQuery());
+    }
+
+    @Test
+    void testOnlyTextClausesAreScored() {
+        Query query = builder()
+            .suppliers("959608")
+            .supplierGroups("106")
+            .categories("Dairy,Wine")
+            .brand("coles")
+            .itemDescription("eggs wine")
+            .build();
+
+        List<BooleanClause> clauses = clauses(query);
+        assertEquals(3, clauses.stream().filter(clause -> clause.getOccur() == BooleanClause.Occur.FILTER).count());
+        List<BooleanClause> scored = clauses.stream().filter(BooleanClause::isScoring).toList();
+        // One MUST clause per token: "coles", "eggs", "wine"
+        assertEquals(3, scored.size());
+        for (BooleanClause clause : scored) {
+            assertEquals(BooleanClause.Occur.MUST, clause.getOccur());
+            String field = fieldOf(clause.getQuery());
+            assertTrue(field.equals("brand") || field.equals("itemDescription"), "scored clause on " + field);
+        }
+    }
+
+    @Test
+    void testTokenExpansionByLengthAndCap() {
+        List<BooleanClause> clauses = clauses(builder().fuzzyText("brand", "Coles Wine Ab").build());
+        assertEquals(3, clauses.size());
+
+        // Five characters or more: fuzzy or prefix, each capped
+        List<BooleanClause> either = clauses(clauses.get(0).getQuery());
+        FuzzyQuery fuzzy = (FuzzyQuery) either.get(0).getQuery();
+        assertEquals(new Term("brand", "coles"), fuzzy.getTerm());
+        assertEquals(2, fuzzy.getMaxEdits());
+        assertExpansionCap(fuzzy);
+        assertExpansionCap((PrefixQuery) either.get(1).getQuery());
+
+        // Shorter: prefix only, capped
+        PrefixQuery prefix = (PrefixQuery) clauses.get(1).getQuery();
+        assertEquals(new Term("brand", "wine"), prefix.getPrefix());
+        assertExpansionCap(prefix);
+
+        // Below the minimum wildcard length: exact
+        assertEquals(new TermQuery(new Term("brand", "ab")), clauses.get(2).getQuery());
+    }
+
+    @Test
+    void testNoClausesMatchesNothing() {
+        assertInstanceOf(MatchNoDocsQuery.class, builder().build());
+        assertInstanceOf(MatchNoDocsQuery.class,
+            builder().suppliers(" , ").categories(null).brand("  ").itemDescription(null).build());
+    }
+
+    @Test
+    void testSplitListTrimsAndDeduplicates() {
+        assertEquals(List.of("a", "b", "c"), List.copyOf(ProductQueryBuilder.splitList(" a, ,b,a , c,,")));
+        assertEquals(Set.of(), ProductQueryBuilder.splitList(null));
+        assertEquals(Set.of(), ProductQueryBuilder.splitList(" , "));
+    }
+
+    private static void assertExpansionCap(MultiTermQuery query) {
+        assertEquals(MAX_EXPANSIONS, ((TopTermsRewrite<?>) query.getRewriteMethod()).getSize());
+    }
+
+    private static List<BooleanClause> clauses(Query query) {
+        return ((BooleanQuery) query).clauses();
+    }
+
+    private static String fieldOf(Query query) {
+        if (query instanceof BooleanQuery booleanQuery) {
+            return fieldOf(booleanQuery.clauses().get(0).getQuery());
+        }
+        if (query instanceof MultiTermQuery multiTermQuery) {
+            return multiTermQuery.getField();
+        }
+        return ((TermQuery) query).getTerm().field();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.salesforcepoc.common;
+
+import com.example.salesforcepoc.entity.Product;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductRecordCodecTest {
+
+    @Test
+    void testRoundTripKeepsNullsAndEmptyStrings() {
+        Product product = new Product("1000000", "", "959608", null, "EGGS WINE COLES", null, "", "Coles", null);
+
+        Product decoded = ProductRecordCodec.decode(ProductRecordCodec.encode(product));
+
+        assertSameFields(product, decoded);
+        assertNull(decoded.getIsPrimarySupplier());
+        assertEquals("", decoded.getSupplierGroupId());
+        assertEquals("", decoded.getLiqMerchCategory());
+    }
+
+    @Test
+    void testRoundTripMultiByteUtf8() {
+        Product product = new Product("1000001", "106", "959606", "Y", "Crème brûlée 200g – 日本酒 🍶",
+            "Délicatessen", null, "Ünïcode", "Ω");
+
+        assertSameFields(product, ProductRecordCodec.decode(ProductRecordCodec.encode(product)));
+    }
+
+    @Test
+    void testDecodeHonoursBytesRefOffset() {
+        Product product = new Product("1000002", "106", "959608", "N", "Item", "Dairy", null, "Brand", "Sub");
+        BytesRef encoded = ProductRecordCodec.encode(product);
+        byte[] padded = new byte[encoded.length + 8];
+        padded[0] = 99;
+        System.arraycopy(encoded.bytes, encoded.offset, padded, 5, encoded.length);
+
+        assertSameFields(product, ProductRecordCodec.decode(new BytesRef(padded, 5, encoded.length)));
+    }
+
+    @Test
+    void testRejectsUnknownFormat() {
+        BytesRef encoded = ProductRecordCodec.encode(new Product("1", null, null, null, null, null, null, null, null));
+        byte[] bytes = BytesRef.deepCopyOf(encoded).bytes;
+        bytes[0] = 2;
+
+        assertThrows(IllegalArgumentException.class, () -> ProductRecordCodec.decode(new BytesRef(bytes)));
+    }
+
+    static void assertSameFields(Product expected, Product actual) {
+        assertEquals(expected.getProductId(), actual.getProductId());
+        assertEquals(expected.getSupplierGroupId(), actual.getSupplierGroupId());
+        assertEquals(expected.getSupplier(), actual.getSupplier());
+        assertEquals(expected.getIsPrimarySupplier(), actual.getIsPrimarySupplier());
+        assertEquals(expected.getItemDescription(), actual.getItemDescription());
+        assertEquals(expected.getSmktsMerchCategory(), actual.getSmktsMerchCategory());
+        assertEquals(expected.getLiqMerchCategory(), actual.getLiqMerchCategory());
+        assertEquals(expected.getDigitalBrandName(), actual.getDigitalBrandName());
+        assertEquals(expected.getSubBrandName(), actual.getSubBrandName());
+    }
+}
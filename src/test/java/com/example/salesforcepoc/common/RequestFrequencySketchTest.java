@@ -0,0 +1,80 @@
+package com.example.salesforcepoc.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestFrequencySketchTest {
+
+    @Test
+    void testEstimatesNeverBelowTrueCounts() {
+        // Narrow enough that many of the keys collide
+        RequestFrequencySketch sketch = new RequestFrequencySketch(16, 8, Integer.MAX_VALUE);
+        Map<String, Integer> counts = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            String key = "supplier-" + (int) Math.abs(random.nextGaussian() * 30);
+            sketch.record(key);
+            counts.merge(key, 1, Integer::sum);
+        }
+        counts.forEach((key, count) ->
+            assertTrue(sketch.estimate(key) >= count, key + " estimated " + sketch.estimate(key) + " < " + count));
+    }
+
+    @Test
+    void testTopOrdersByCountAndAppliesMinCount() {
+        RequestFrequencySketch sketch = new RequestFrequencySketch(1024, 10, Integer.MAX_VALUE);
+        record(sketch, "a", 5);
+        record(sketch, "b", 3);
+        record(sketch, "c", 1);
+
+        assertEquals(List.of("a", "b", "c"), sketch.top(10, 1));
+        assertEquals(List.of("a", "b"), sketch.top(2, 1));
+        assertEquals(List.of("a", "b"), sketch.top(10, 2));
+        assertEquals(List.of(), sketch.top(10, 6));
+    }
+
+    @Test
+    void testFullCandidateTableReplacesLowest() {
+        RequestFrequencySketch sketch = new RequestFrequencySketch(1024, 2, Integer.MAX_VALUE);
+        record(sketch, "a", 3);
+        record(sketch, "b", 1);
+
+        // Tied with the lowest candidate: not enough to take its place
+        record(sketch, "c", 1);
+        assertEquals(List.of("a", "b"), sketch.top(10, 1));
+
+        // Overtakes it
+        record(sketch, "c", 1);
+        assertEquals(List.of("a", "c"), sketch.top(10, 1));
+        assertEquals(2, sketch.estimate("c"));
+    }
+
+    @Test
+    void testHalvesAfterSampleSizeAndDropsZeroedCandidates() {
+        RequestFrequencySketch sketch = new RequestFrequencySketch(1024, 10, 10);
+        record(sketch, "a", 6);
+        record(sketch, "b", 1);
+        record(sketch, "c", 2);
+        assertEquals(6, sketch.estimate("a"));
+        assertEquals(List.of("a", "c", "b"), sketch.top(10, 1));
+
+        // The tenth request halves every count
+        sketch.record("c");
+        assertEquals(3, sketch.estimate("a"));
+        assertEquals(1, sketch.estimate("c"));
+        assertEquals(0, sketch.estimate("b"));
+        assertEquals(List.of("a", "c"), sketch.top(10, 0));
+    }
+
+    private static void record(RequestFrequencySketch sketch, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            sketch.record(key);
+        }
+    }
+}
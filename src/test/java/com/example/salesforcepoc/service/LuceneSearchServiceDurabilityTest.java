@@ -0,0 +1,173 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.ProductIndexSchema;
+import com.example.salesforcepoc.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Commit behaviour of the durability modes, against an in-memory index with no database behind it
+ */
+class LuceneSearchServiceDurabilityTest {
+
+    // Background refreshes and group commits are pushed out of the way so each test decides when they happen
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withInitializer(context -> context.getBeanFactory().registerSingleton("productService", mock(ProductService.class)))
+        .withBean(SearchMetricsService.class)
+        .withBean(LuceneSearchService.class)
+        .withPropertyValues(
+            "search.index.storage=heap",
+            "search.warmup.enabled=false",
+            "search.index.refresh-interval-ms=3600000",
+            "search.index.durability.batch-docs=10",
+            "search.index.durability.group-interval-ms=3600000");
+
+    @Test
+    void testOnCompletionCommitsCompleteIndex() {
+        contextRunner.withPropertyValues("search.index.durability.mode=on-completion").run(context -> {
+            LuceneSearchService service = context.getBean(LuceneSearchService.class);
+            service.rebuildIndex(feed(products("S1", 0, 25)), indexed -> { }, () -> false);
+            assertEquals(ProductIndexSchema.STATE_COMPLETE, indexState(service));
+            assertTrue(service.isSchemaCurrent());
+
+            service.updateProducts(products("S2", 100, 3), List.of());
+            assertEquals(ProductIndexSchema.STATE_COMPLETE, indexState(service));
+            assertEquals(0L, uncommittedDocs(service));
+        });
+    }
+
+    @Test
+    void testBatchCommitsCompleteIndexAfterEachUpdate() {
+        contextRunner.withPropertyValues("search.index.durability.mode=batch").run(context -> {
+            LuceneSearchService service = context.getBean(LuceneSearchService.class);
+            service.rebuildIndex(feed(products("S1", 0, 25)), indexed -> { }, () -> false);
+            long generation = service.getIndexGeneration();
+
+            service.updateProducts(products("S2", 100, 15), List.of("P0"));
+            assertEquals(ProductIndexSchema.STATE_COMPLETE, indexState(service));
+            assertEquals(0L, uncommittedDocs(service));
+            // 15 updates with batches of 10: one commit mid-update, one at its end
+            assertEquals(generation + 2, service.getIndexGeneration());
+        });
+    }
+
+    @Test
+    void testGroupMarksIndexUpdatingUntilCommitted() {
+        contextRunner.withPropertyValues("search.index.durability.mode=group").run(context -> {
+            LuceneSearchService service = context.getBean(LuceneSearchService.class);
+            service.rebuildIndex(feed(products("S1", 0, 25)), indexed -> { }, () -> false);
+
+            service.updateProducts(products("S2", 100, 3), List.of());
+            // Acknowledged but not committed: a crash now must be detected at startup
+            assertEquals(ProductIndexSchema.STATE_UPDATING, indexState(service));
+            assertFalse(service.isSchemaCurrent());
+            assertEquals(3L, uncommittedDocs(service));
+
+            service.forceMerge(1);
+            assertEquals(ProductIndexSchema.STATE_COMPLETE, indexState(service));
+            assertTrue(service.isSchemaCurrent());
+            assertEquals(0L, uncommittedDocs(service));
+        });
+    }
+
+    @Test
+    void testPendingGroupUpdatesSurviveCancelledForceMerge() {
+        contextRunner.withPropertyValues(
+            "search.index.durability.mode=group",
+            "search.index.durability.group-max-docs=100",
+            // Keep the small segments apart, and merge them slowly enough to cancel
+            "search.index.merge.segments-per-tier=50",
+            "search.index.force-merge-mb-per-sec=0.01"
+        ).run(context -> {
+            LuceneSearchService service = context.getBean(LuceneSearchService.class);
+            for (int segment = 0; segment < 5; segment++) {
+                // Reaching group-max-docs commits each call, one segment each
+                service.updateProducts(products("S1", segment * 200, 200), List.of());
+            }
+            service.updateProducts(products("S2", 5000, 5), List.of());
+            assertEquals(5L, uncommittedDocs(service));
+
+            CompletableFuture<Void> merge = CompletableFuture.runAsync(() -> {
+                try {
+                    service.forceMerge(1);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!service.cancelForceMerge()) {
+                assertTrue(System.currentTimeMillis() < deadline, "force-merge never started");
+                Thread.sleep(5);
+            }
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> merge.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(CancellationException.class, failure.getCause());
+
+            assertEquals(ProductIndexSchema.STATE_COMPLETE, indexState(service));
+            assertEquals(0L, uncommittedDocs(service));
+            assertEquals(1005, service.getDocumentCount());
+            assertEquals(5, service.searchProductsBySupplier("S2", 10).size());
+        });
+    }
+
+    @Test
+    void testInterruptedRebuildIsNotCurrentAndRollsBack() {
+        contextRunner.withPropertyValues("search.index.durability.mode=batch").run(context -> {
+            LuceneSearchService service = context.getBean(LuceneSearchService.class);
+            service.rebuildIndex(feed(products("S1", 0, 25)), indexed -> { }, () -> false);
+
+            List<Boolean> currentDuringRebuild = new ArrayList<>();
+            LuceneSearchService.ProductFeed failing = indexer -> {
+                for (Product product : products("S2", 100, 30)) {
+                    indexer.accept(product);
+                }
+                // Batches of 10 are committed by now; a crash here leaves a partial rebuild on disk
+                currentDuringRebuild.add(service.isSchemaCurrent());
+                throw new IllegalStateException("source failed");
+            };
+            assertThrows(IllegalStateException.class, () -> service.rebuildIndex(failing, indexed -> { }, () -> false));
+
+            assertEquals(List.of(false), currentDuringRebuild);
+            // The rollback returns to the index the rebuild started from
+            assertTrue(service.isSchemaCurrent());
+            assertEquals(25, service.getDocumentCount());
+            assertEquals(25, service.searchProductsBySupplier("S1", 100).size());
+            assertTrue(service.searchProductsBySupplier("S2", 100).isEmpty());
+        });
+    }
+
+    private static List<Product> products(String supplier, int firstId, int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = firstId; i < firstId + count; i++) {
+            products.add(new Product("P" + i, "G1", supplier, "Y", "Item " + i, "Dairy", null, "Brand", null));
+        }
+        return products;
+    }
+
+    private static LuceneSearchService.ProductFeed feed(List<Product> products) {
+        return products::forEach;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String indexState(LuceneSearchService service) throws Exception {
+        Map<String, Object> commit = (Map<String, Object>) service.getIndexStats(false).get("commit");
+        return ((Map<String, String>) commit.get("userData")).get(ProductIndexSchema.INDEX_STATE_KEY);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object uncommittedDocs(LuceneSearchService service) throws Exception {
+        Map<String, Object> durability = (Map<String, Object>) service.getIndexStats(false).get("durability");
+        return durability.get("uncommittedDocs");
+    }
+}
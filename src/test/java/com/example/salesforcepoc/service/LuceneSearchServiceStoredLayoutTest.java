@@ -0,0 +1,77 @@
+package com.example.salesforcepoc.service;
+
+import com.example.salesforcepoc.common.FieldProjection;
+import com.example.salesforcepoc.common.QueryResults;
+import com.example.salesforcepoc.common.StageTimer;
+import com.example.salesforcepoc.common.TimeBudget;
+import com.example.salesforcepoc.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Products read back from the index's stored fields in both layouts
+ */
+class LuceneSearchServiceStoredLayoutTest {
+
+    private static final Product PRODUCT = new Product("1000000", "106", "959608", "Y", "Crème brûlée – 日本酒",
+        "Dairy", null, "Coles", "");
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withInitializer(context -> context.getBeanFactory().registerSingleton("productService", mock(ProductService.class)))
+        .withBean(SearchMetricsService.class)
+        .withBean(LuceneSearchService.class)
+        .withPropertyValues("search.index.storage=heap", "search.warmup.enabled=false");
+
+    @Test
+    void testLeanLayoutReadsWholeProductFromRecord() {
+        contextRunner.withPropertyValues("search.index.stored-layout=lean").run(context -> {
+            LuceneSearchService service = indexed(context.getBean(LuceneSearchService.class));
+            // The record holds every field, whatever was asked for
+            Product read = readBack(service, Set.of("productId"));
+
+            assertEquals("1000000", read.getProductId());
+            assertEquals("Y", read.getIsPrimarySupplier());
+            assertEquals("Crème brûlée – 日本酒", read.getItemDescription());
+            assertNull(read.getLiqMerchCategory());
+            assertEquals("", read.getSubBrandName());
+        });
+    }
+
+    @Test
+    void testFullLayoutReadsRequestedFields() {
+        contextRunner.withPropertyValues("search.index.stored-layout=full").run(context -> {
+            LuceneSearchService service = indexed(context.getBean(LuceneSearchService.class));
+            Product read = readBack(service, Set.of("productId", "itemDescription"));
+
+            assertEquals("1000000", read.getProductId());
+            assertEquals("Crème brûlée – 日本酒", read.getItemDescription());
+            assertNull(read.getSupplier());
+
+            Product all = readBack(service, FieldProjection.INDEX_STORED_FIELDS);
+            assertEquals("959608", all.getSupplier());
+            assertEquals("106", all.getSupplierGroupId());
+            assertEquals("Dairy", all.getSmktsMerchCategory());
+            // Empty and missing values both read back as null
+            assertNull(all.getLiqMerchCategory());
+            assertNull(all.getSubBrandName());
+        });
+    }
+
+    // A rebuild publishes to searchers as soon as it has committed
+    private static LuceneSearchService indexed(LuceneSearchService service) throws Exception {
+        service.rebuildIndex(indexer -> indexer.accept(PRODUCT), indexed -> { }, () -> false);
+        return service;
+    }
+
+    private static Product readBack(LuceneSearchService service, Set<String> storedFields) throws Exception {
+        QueryResults results = service.searchProductsBySupplier("959608", 10, new StageTimer(),
+            TimeBudget.unlimited(), storedFields);
+        assertEquals(1, results.getProducts().size());
+        return results.getProducts().get(0);
+    }
+}